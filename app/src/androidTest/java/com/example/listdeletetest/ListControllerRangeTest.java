@@ -0,0 +1,211 @@
+package com.example.listdeletetest;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.listdeletetest.model.Gap;
+import com.example.listdeletetest.model.Tweet;
+import com.example.listdeletetest.pipeline.LiveUpdateBuffer;
+import com.example.listdeletetest.pipeline.PagePipeline;
+import com.example.listdeletetest.utils.Timeline;
+import com.example.listdeletetest.webservice.FauxWebService;
+import com.example.listdeletetest.widget.RowHeightCache;
+import com.example.listdeletetest.widget.RowLayoutEngine;
+import com.example.listdeletetest.widget.TweetHeightEstimator;
+import com.example.listdeletetest.widget.TweetTextCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jumps and fills gaps through the whole stack: {@link ListController} requests, {@link FauxWebService}
+ * answers, the {@link PagePipeline} prepares the range pages and commitRange merges them on the main thread.
+ * Also covers stream deletes racing a request.
+ */
+public class ListControllerRangeTest extends AndroidTestCase {
+	private static final String TAG = "ListControllerRangeTest";
+	private static final int TOTAL = 1000;
+	private static final long TARGET = 40; // <= below the initial window of 80 to 71
+
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+	private FauxWebService mWebService;
+	private ListController mController;
+	private RowLayoutEngine mLayoutEngine;
+	private volatile CountDownLatch mRequestDone;
+	private volatile int mJumpPosition = -1;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		List<Tweet> tweets = new ArrayList<Tweet>(TOTAL);
+		for (int i = 0; i < TOTAL; i++) {
+			tweets.add(new Tweet(String.valueOf(i), "author", "message", null, null, TOTAL - i));
+		}
+		mWebService = new FauxWebService(tweets);
+		mWebService.setLatency(0);
+		TweetTextCache textCache = new TweetTextCache();
+		mController = new ListController(mWebService, new PagePipeline(getContext(), textCache));
+		mLayoutEngine = new RowLayoutEngine(new RowHeightCache(), TweetHeightEstimator.fromResources(getContext().getResources()));
+		mLayoutEngine.setWidth(1080);
+		mController.setLayoutEngine(mLayoutEngine);
+		mController.attach(ListAdapter.instantiate(getContext(), mController.getTimeline(), mLayoutEngine, textCache));
+		mController.setRequestStateChangeDelegate(new ListController.RequestStateChangeDelegate() {
+			@Override
+			public void handleRequestStart() {
+			}
+
+			@Override
+			public void handleRequestComplete() {
+				mRequestDone.countDown();
+			}
+		});
+		mController.setNavigationDelegate(new ListController.NavigationDelegate() {
+			@Override
+			public void handleJumpComplete(int position) {
+				mJumpPosition = position;
+			}
+
+			@Override
+			public void handleRangeMerged(int position, int delta) {
+			}
+		});
+
+		request(new Runnable() {
+			@Override
+			public void run() {
+				mController.fetchInitial();
+			}
+		});
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		mController.release();
+		super.tearDown();
+	}
+
+	public void testJumpMergesRange() throws Exception {
+		List<Tweet> timeline = mController.getTimeline();
+		assertEquals(ListController.INITIAL_COUNT, timeline.size());
+
+		request(new Runnable() {
+			@Override
+			public void run() {
+				mController.jumpTo(TARGET);
+			}
+		});
+
+		// initial window, gap, jumped window
+		assertEquals(ListController.INITIAL_COUNT + 1 + ListController.AROUND_REQUEST_LIMIT, timeline.size());
+		assertTrue(timeline.get(ListController.INITIAL_COUNT) instanceof Gap);
+		assertEquals(TARGET, timeline.get(mJumpPosition).getTimeStamp());
+		assertOrdered(timeline);
+		assertEquals(timeline.size(), mLayoutEngine.getCount());
+	}
+
+	public void testGapFillsUntilClosed() throws Exception {
+		request(new Runnable() {
+			@Override
+			public void run() {
+				mController.jumpTo(TARGET);
+			}
+		});
+
+		List<Tweet> timeline = mController.getTimeline();
+		long oldest = timeline.get(timeline.size() - 1).getTimeStamp();
+		int requests = 0;
+		Gap gap;
+		while ((gap = findGap(timeline)) != null) {
+			final Gap fill = gap;
+			final boolean fromNewerEdge = requests % 2 == 0;
+			request(new Runnable() {
+				@Override
+				public void run() {
+					mController.fillGap(fill, fromNewerEdge);
+				}
+			});
+			requests++;
+			assertTrue(requests < TOTAL / ListController.NEXT_REQUEST_LIMIT);
+		}
+
+		// contiguous from the initial window down to the jumped one
+		assertOrdered(timeline);
+		assertEquals(timeline.get(0).getTimeStamp() - oldest + 1, timeline.size());
+		assertEquals(timeline.size(), mLayoutEngine.getCount());
+		Log.d(TAG, "closed the gap with " + requests + " range requests");
+	}
+
+	public void testStreamDeleteDuringRequest() throws Exception {
+		// the next page starts with this tweet, the stream deletes it while the page is on its way
+		List<Tweet> timeline = mController.getTimeline();
+		final String deleted = String.valueOf(TOTAL - (timeline.get(timeline.size() - 1).getTimeStamp() - 1));
+		mWebService.setLatency(200);
+		request(new Runnable() {
+			@Override
+			public void run() {
+				mController.fetchBottom();
+				mController.handleStreamDeleted(Collections.singletonList(deleted));
+			}
+		});
+
+		assertEquals(ListController.INITIAL_COUNT + ListController.NEXT_REQUEST_LIMIT - 1, timeline.size());
+		for (Tweet tweet : timeline) {
+			assertFalse(deleted.equals(tweet.getId()));
+		}
+		assertEquals(timeline.size(), mLayoutEngine.getCount());
+	}
+
+	public void testFetchBottomOnEmptyTimeline() throws Exception {
+		request(new Runnable() {
+			@Override
+			public void run() {
+				// another client deleted everything loaded
+				LiveUpdateBuffer buffer = new LiveUpdateBuffer();
+				buffer.addDeleted(Timeline.getIds(mController.getTimeline()));
+				mController.applyLiveBatch(buffer.drain());
+				assertTrue(mController.getTimeline().isEmpty());
+
+				mController.fetchBottom(); // <= starts over instead of continuing from the last row
+			}
+		});
+
+		assertEquals(ListController.INITIAL_COUNT, mController.getTimeline().size());
+		assertEquals(ListController.INITIAL_COUNT, mLayoutEngine.getCount());
+	}
+
+	private void request(Runnable request) throws InterruptedException {
+		mRequestDone = new CountDownLatch(1);
+		mMainHandler.post(request);
+		assertTrue(mRequestDone.await(5, TimeUnit.SECONDS));
+	}
+
+	private static Gap findGap(List<Tweet> timeline) {
+		for (Tweet tweet : timeline) {
+			if (tweet instanceof Gap) {
+				return (Gap) tweet;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Newest first and no tweet twice; gaps share the time stamp of the tweet below them.
+	 */
+	private static void assertOrdered(List<Tweet> timeline) {
+		Set<String> ids = new HashSet<String>();
+		for (int i = 0; i < timeline.size(); i++) {
+			Tweet tweet = timeline.get(i);
+			assertTrue(ids.add(tweet.getId()));
+			if (i > 0 && !(timeline.get(i - 1) instanceof Gap)) {
+				assertTrue(timeline.get(i - 1).getTimeStamp() > tweet.getTimeStamp());
+			}
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package com.example.listdeletetest;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.listdeletetest.model.Tweet;
+import com.example.listdeletetest.pipeline.LiveUpdateBuffer;
+import com.example.listdeletetest.pipeline.Page;
+import com.example.listdeletetest.pipeline.PagePipeline;
+import com.example.listdeletetest.utils.Metrics;
+import com.example.listdeletetest.utils.Timeline;
+import com.example.listdeletetest.webservice.FauxWebService;
+import com.example.listdeletetest.widget.RowHeightCache;
+import com.example.listdeletetest.widget.RowLayoutEngine;
+import com.example.listdeletetest.widget.TweetHeightEstimator;
+import com.example.listdeletetest.widget.TweetTextCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live updates against a 100k tweet timeline: batches applied directly, and the stream pushing
+ * thousands of events per second through the controller's buffer and per frame commits.
+ */
+public class LiveBatchBenchmark extends AndroidTestCase {
+	private static final String TAG = "LiveBatchBenchmark";
+	private static final int ROWS = 100000;
+	private static final int FRAMES = 1000;
+	private static final int INSERTS_PER_FRAME = 5;
+	private static final long FRAME_MS = 16;
+	private static final int STREAM_MILLISECONDS = 3000;
+	private static final int INSERTS_PER_MILLISECOND = 3; // <= with the deletes 5000 events/s
+	private static final int DELETES_PER_MILLISECOND = 2;
+
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+	private List<Tweet> mTweets;
+	private ListController mController;
+	private RowLayoutEngine mLayoutEngine;
+	private int mInsertedCount;
+	private int mTweetCount;
+	private int[] mRemovedPositions;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		mTweets = new ArrayList<Tweet>(ROWS);
+		for (int i = 0; i < ROWS; i++) {
+			mTweets.add(new Tweet(String.valueOf(i), "author", "message", null, null, ROWS - i));
+		}
+		TweetTextCache textCache = new TweetTextCache();
+		PagePipeline pipeline = new PagePipeline(getContext(), textCache);
+		mController = new ListController(new FauxWebService(Collections.<Tweet>emptyList()), pipeline);
+		mLayoutEngine = new RowLayoutEngine(new RowHeightCache(), TweetHeightEstimator.fromResources(getContext().getResources()));
+		mLayoutEngine.setWidth(1080);
+		mController.setLayoutEngine(mLayoutEngine);
+		mController.attach(ListAdapter.instantiate(getContext(), mController.getTimeline(), mLayoutEngine, textCache));
+		mController.setLiveUpdateDelegate(new ListController.LiveUpdateDelegate() {
+			@Override
+			public void handleLiveBatch(int insertedCount, int tweetCount, int[] removedPositions) {
+				mInsertedCount = insertedCount;
+				mTweetCount = tweetCount;
+				mRemovedPositions = removedPositions;
+			}
+		});
+
+		pipeline.accept(mTweets); // <= as if the page came through the pipeline
+		mController.commitPage(new Page(Page.KIND_NEXT, new ArrayList<Tweet>(mTweets)));
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		mController.release();
+		super.tearDown();
+	}
+
+	/**
+	 * Applies a batch per frame directly: master list, layout engine, adapter notification and the
+	 * positions reported for keeping the visible rows in place.
+	 */
+	public void testBatchPerFrame() {
+		List<Tweet> timeline = mController.getTimeline();
+		LiveUpdateBuffer buffer = new LiveUpdateBuffer();
+		long newest = ROWS;
+		long total = 0;
+		long max = 0;
+
+		for (int frame = 0; frame < FRAMES; frame++) {
+			List<Tweet> inserted = new ArrayList<Tweet>(INSERTS_PER_FRAME);
+			for (int i = 0; i < INSERTS_PER_FRAME; i++) {
+				newest++;
+				inserted.add(0, new Tweet("live-" + newest, "author", "message", null, null, newest));
+			}
+			buffer.addInserted(inserted);
+			// one loaded tweet somewhere in the timeline and one which never was
+			Tweet deleted = mTweets.get(frame * 7919 % ROWS);
+			buffer.addDeleted(Collections.singletonList(deleted.getId()));
+			buffer.addDeleted(Collections.singletonList("gone-" + frame));
+			int expectedPosition = timeline.indexOf(deleted);
+
+			long start = System.nanoTime();
+			mController.applyLiveBatch(buffer.drain());
+			long elapsed = System.nanoTime() - start;
+			if (frame > 0) { // <= first frame includes warm up
+				total += elapsed;
+				max = Math.max(max, elapsed);
+			}
+
+			assertEquals(INSERTS_PER_FRAME, mInsertedCount);
+			assertEquals(INSERTS_PER_FRAME, mTweetCount);
+			assertEquals(1, mRemovedPositions.length);
+			assertEquals(expectedPosition, mRemovedPositions[0]);
+		}
+
+		assertEquals(ROWS + FRAMES * (INSERTS_PER_FRAME - 1), timeline.size());
+		assertEquals(timeline.size(), mLayoutEngine.getCount());
+		assertEquals(newest, timeline.get(0).getTimeStamp());
+
+		// for comparison, a single pass over the timeline looking for the deleted ids, best of a few
+		long scan = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			long start = System.nanoTime();
+			Timeline.removeIds(timeline, Collections.singleton("gone"));
+			scan = Math.min(scan, System.nanoTime() - start);
+		}
+
+		Log.d(TAG, FRAMES + " frames on " + ROWS + " rows: " + total / (FRAMES - 1) / 1000 + "us average, "
+				+ max / 1000 + "us max; one scan for deleted ids " + scan / 1000 + "us");
+		assertTrue("batch took longer than a frame", max < FRAME_MS * 1000000);
+	}
+
+	/**
+	 * Pushes inserts and deletions through the stream callbacks at 5000 events/s. Deletions hit loaded
+	 * tweets, live tweets whether still buffered or already shown, and tweets never loaded.
+	 */
+	public void testStreamAtRate() throws Exception {
+		final AtomicLong maxCommit = new AtomicLong();
+		final AtomicLong commits = new AtomicLong();
+		final AtomicLong totalCommit = new AtomicLong();
+		Metrics.setListener(new Metrics.Listener() {
+			@Override
+			public void onMetric(String name, long durationNanos) {
+				if (ListController.METRIC_LIVE_COMMIT.equals(name)) {
+					if (commits.incrementAndGet() > 1) { // <= first commit includes warm up
+						totalCommit.addAndGet(durationNanos);
+						maxCommit.set(Math.max(maxCommit.get(), durationNanos)); // <= only the main thread records it
+					}
+				}
+			}
+		});
+
+		Set<String> expected = new HashSet<String>(Timeline.getIds(mTweets));
+		List<String> live = new ArrayList<String>();
+		Random random = new Random(42);
+		long newest = ROWS;
+		int events = 0;
+		long start = System.nanoTime();
+		try {
+			for (int ms = 0; ms < STREAM_MILLISECONDS; ms++) {
+				List<Tweet> inserted = new ArrayList<Tweet>(INSERTS_PER_MILLISECOND);
+				for (int i = 0; i < INSERTS_PER_MILLISECOND; i++) {
+					newest++;
+					Tweet tweet = new Tweet("live-" + newest, "author", "message", null, null, newest);
+					inserted.add(0, tweet);
+					live.add(tweet.getId());
+					expected.add(tweet.getId());
+				}
+				mController.handleStreamInserted(inserted);
+
+				List<String> deleted = new ArrayList<String>(DELETES_PER_MILLISECOND);
+				for (int i = 0; i < DELETES_PER_MILLISECOND; i++) {
+					switch (random.nextInt(3)) {
+						case 0:
+							deleted.add(mTweets.get(random.nextInt(ROWS)).getId());
+							break;
+						case 1:
+							deleted.add(live.get(random.nextInt(live.size())));
+							break;
+						default:
+							deleted.add("gone-" + ms + "-" + i);
+							break;
+					}
+				}
+				expected.removeAll(deleted);
+				mController.handleStreamDeleted(deleted);
+				events += INSERTS_PER_MILLISECOND + DELETES_PER_MILLISECOND;
+
+				// keep to the rate, catching up after a late wake up
+				long ahead = (ms + 1) * 1000000L - (System.nanoTime() - start);
+				if (ahead > 0) {
+					Thread.sleep(ahead / 1000000, (int) (ahead % 1000000));
+				}
+			}
+			long elapsedMs = (System.nanoTime() - start) / 1000000;
+			Thread.sleep(FRAME_MS * 4); // <= the last events are committed with the next frame
+
+			final List<Tweet> timeline = new ArrayList<Tweet>();
+			final int[] engineCount = new int[1];
+			final CountDownLatch snapshot = new CountDownLatch(1);
+			mMainHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					timeline.addAll(mController.getTimeline());
+					engineCount[0] = mLayoutEngine.getCount();
+					snapshot.countDown();
+				}
+			});
+			assertTrue(snapshot.await(5, TimeUnit.SECONDS));
+
+			assertEquals(expected, new HashSet<String>(Timeline.getIds(timeline)));
+			assertEquals(timeline.size(), engineCount[0]);
+			for (int i = 1; i < timeline.size(); i++) {
+				assertTrue(timeline.get(i - 1).getTimeStamp() > timeline.get(i).getTimeStamp());
+			}
+
+			Log.d(TAG, events + " events in " + elapsedMs + "ms on " + ROWS + " rows, " + commits.get()
+					+ " commits, " + totalCommit.get() / Math.max(1, commits.get() - 1) / 1000 + "us average, max "
+					+ maxCommit.get() / 1000 + "us");
+			assertTrue("commit took longer than a frame", maxCommit.get() < FRAME_MS * 1000000);
+		} finally {
+			Metrics.setListener(null);
+		}
+	}
+}
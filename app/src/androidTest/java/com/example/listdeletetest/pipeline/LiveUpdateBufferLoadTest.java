@@ -0,0 +1,86 @@
+package com.example.listdeletetest.pipeline;
+
+import android.util.Log;
+
+import com.example.listdeletetest.model.Tweet;
+
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Pushes inserts and deletions from several threads while a consumer drains once per frame,
+ * and checks that the applied batches add up to the pushed events.
+ */
+public class LiveUpdateBufferLoadTest extends TestCase {
+	private static final String TAG = "LiveUpdateBufferLoadTest";
+	private static final int PRODUCERS = 4;
+	private static final int INSERTS_PER_PRODUCER = 5000;
+	private static final int INSERTS_PER_MILLISECOND = 5; // <= per producer, about 20k events/s in total
+	private static final long FRAME_MS = 16;
+
+	public void testBurstsAreBatchedPerFrame() throws Exception {
+		final LiveUpdateBuffer buffer = new LiveUpdateBuffer();
+		final CountDownLatch done = new CountDownLatch(PRODUCERS);
+		final Set<String> expected = Collections.synchronizedSet(new HashSet<String>());
+
+		long start = System.nanoTime();
+		for (int p = 0; p < PRODUCERS; p++) {
+			final int producer = p;
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < INSERTS_PER_PRODUCER; i++) {
+						String id = producer + "-" + i;
+						buffer.addInserted(Collections.singletonList(
+								new Tweet(id, "author", "message", null, null, i)));
+						expected.add(id);
+						if (i % 10 == 0) {
+							// delete an earlier tweet, either still buffered or already drained
+							String deleted = producer + "-" + (i / 2);
+							buffer.addDeleted(Collections.singletonList(deleted));
+							expected.remove(deleted);
+						}
+						if (i % INSERTS_PER_MILLISECOND == 0) {
+							try {
+								Thread.sleep(1);
+							} catch (InterruptedException e) {
+								return;
+							}
+						}
+					}
+					done.countDown();
+				}
+			}).start();
+		}
+
+		Set<String> applied = new HashSet<String>();
+		int frames = 0;
+		long maxDrainNanos = 0;
+		while (done.getCount() > 0 || !buffer.isEmpty()) {
+			Thread.sleep(FRAME_MS);
+			long drainStart = System.nanoTime();
+			LiveUpdateBuffer.Batch batch = buffer.drain();
+			applied.removeAll(batch.getDeleted());
+			for (Tweet tweet : batch.getInserted()) {
+				applied.add(tweet.getId());
+			}
+			if (frames > 0) { // <= first frame includes warm up
+				maxDrainNanos = Math.max(maxDrainNanos, System.nanoTime() - drainStart);
+			}
+			frames++;
+		}
+		long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+		int events = PRODUCERS * INSERTS_PER_PRODUCER * 11 / 10;
+		Log.d(TAG, events + " events in " + elapsedMs + "ms, "
+				+ frames + " frames, max drain " + maxDrainNanos / 1000 + "us");
+
+		assertEquals(expected, applied);
+		assertTrue("fewer than 1000 events/s", events * 1000L / Math.max(1, elapsedMs) >= 1000);
+		assertTrue("drain took longer than a frame", maxDrainNanos < FRAME_MS * 1000000);
+	}
+}
@@ -0,0 +1,65 @@
+package com.example.listdeletetest.pipeline;
+
+import android.test.AndroidTestCase;
+
+import com.example.listdeletetest.model.Tweet;
+import com.example.listdeletetest.utils.Metrics;
+import com.example.listdeletetest.widget.TweetTextCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stage throwing on a page must neither lose the page nor stop its thread, otherwise the
+ * request behind the page never finishes and no further fetch is made.
+ */
+public class PagePipelineTest extends AndroidTestCase {
+	private final BlockingQueue<Page> mCommitted = new LinkedBlockingQueue<Page>();
+	private PagePipeline mPipeline;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		mPipeline = new PagePipeline(getContext(), new TweetTextCache());
+		mPipeline.setCommitter(new PagePipeline.Committer() {
+			@Override
+			public void commitPage(Page page) {
+				mCommitted.add(page);
+			}
+		});
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		mPipeline.quit();
+		super.tearDown();
+	}
+
+	public void testFailedPageStillCommits() throws Exception {
+		int failuresBefore = Metrics.getStats(PagePipeline.METRIC_PREFIX + "dedupe" + PagePipeline.METRIC_FAILED_SUFFIX).getCount();
+
+		// no id, the dedupe stage throws on it
+		assertTrue(mPipeline.submit(new Page(Page.KIND_NEXT, tweets(new Tweet(null, "author", "message", "", null, 2)))));
+		Page failed = mCommitted.poll(5, TimeUnit.SECONDS);
+		assertNotNull(failed);
+		assertTrue(failed.isFailed());
+		assertEquals(failuresBefore + 1,
+				Metrics.getStats(PagePipeline.METRIC_PREFIX + "dedupe" + PagePipeline.METRIC_FAILED_SUFFIX).getCount());
+
+		// the stages are still running, an empty profile image url is skipped
+		assertTrue(mPipeline.submit(new Page(Page.KIND_NEXT, tweets(new Tweet("1", "author", "message", "", null, 1)))));
+		Page page = mCommitted.poll(5, TimeUnit.SECONDS);
+		assertNotNull(page);
+		assertFalse(page.isFailed());
+		assertEquals(1, page.getTweets().size());
+	}
+
+	private static List<Tweet> tweets(Tweet tweet) {
+		List<Tweet> tweets = new ArrayList<Tweet>();
+		tweets.add(tweet);
+		return tweets;
+	}
+}
@@ -0,0 +1,45 @@
+package com.example.listdeletetest.utils;
+
+import android.graphics.Bitmap;
+
+import junit.framework.TestCase;
+
+public class ImageMemoryCacheTest extends TestCase {
+	private static final int IMAGE_BYTES = 100 * 100 * 4; // <= ARGB_8888
+
+	private ImageMemoryCache mCache;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		mCache = new ImageMemoryCache(10 * IMAGE_BYTES);
+		for (int i = 0; i < 8; i++) {
+			mCache.set("image" + i, Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+		}
+	}
+
+	public void testSizedInBytes() {
+		assertEquals(8 * IMAGE_BYTES, mCache.getSizeBytes());
+		mCache.set("image8", Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+		mCache.set("image9", Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+		mCache.set("image10", Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+		assertEquals(10 * IMAGE_BYTES, mCache.getSizeBytes()); // <= own limit evicted the oldest
+		assertNull(mCache.get("image0"));
+	}
+
+	public void testTrimReleasesLeastRecentlyUsedFirst() {
+		mCache.get("image0"); // <= now the most recently used
+
+		assertEquals(3 * IMAGE_BYTES, mCache.trim(3 * IMAGE_BYTES - 1)); // <= whole images only
+		assertEquals(5 * IMAGE_BYTES, mCache.getSizeBytes());
+		assertNotNull(mCache.get("image0"));
+		assertNull(mCache.get("image1"));
+		assertNull(mCache.get("image3"));
+		assertNotNull(mCache.get("image4"));
+	}
+
+	public void testTrimEverything() {
+		assertEquals(8 * IMAGE_BYTES, mCache.trim(Long.MAX_VALUE));
+		assertEquals(0, mCache.getSizeBytes());
+	}
+}
@@ -0,0 +1,125 @@
+package com.example.listdeletetest.utils;
+
+import android.content.ComponentCallbacks2;
+
+import junit.framework.TestCase;
+
+import java.util.Map;
+
+public class MemoryBudgetTest extends TestCase {
+	private static final long BUDGET = 1000;
+
+	private static class FakeCache implements MemoryBudget.Cache {
+		long mSize;
+		int mTrimCount;
+
+		FakeCache(long size) {
+			mSize = size;
+		}
+
+		@Override
+		public long getSizeBytes() {
+			return mSize;
+		}
+
+		@Override
+		public long trim(long bytes) {
+			long freed = Math.min(bytes, mSize);
+			mSize -= freed;
+			mTrimCount++;
+			return freed;
+		}
+	}
+
+	private MemoryBudget mBudget;
+	private FakeCache mText;
+	private FakeCache mHeights;
+	private FakeCache mImages;
+	private FakeCache mTimeline;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		mBudget = new MemoryBudget(BUDGET);
+		mText = new FakeCache(100);
+		mHeights = new FakeCache(50);
+		mImages = new FakeCache(400);
+		mTimeline = new FakeCache(300);
+		mBudget.register("text", MemoryBudget.COST_RECOMPUTE, mText);
+		mBudget.register("heights", MemoryBudget.COST_RECOMPUTE, mHeights);
+		mBudget.register("images", MemoryBudget.COST_RELOAD, mImages);
+		mBudget.register("timeline", MemoryBudget.COST_REFETCH, mTimeline);
+	}
+
+	public void testUsagePerCache() {
+		Map<String, Long> usage = mBudget.getUsageByCache();
+		assertEquals(4, usage.size());
+		assertEquals(Long.valueOf(100), usage.get("text"));
+		assertEquals(Long.valueOf(400), usage.get("images"));
+		assertEquals(850, mBudget.getUsageBytes());
+	}
+
+	public void testWithinBudgetTrimsNothing() {
+		mBudget.enforce();
+		assertEquals(0, mText.mTrimCount + mHeights.mTrimCount + mImages.mTrimCount + mTimeline.mTrimCount);
+	}
+
+	public void testCheapestAndLargestTrimmedFirst() {
+		mTimeline.mSize = 700; // <= 1250 in total
+		mBudget.enforce();
+
+		assertTrue(mBudget.getUsageBytes() <= BUDGET);
+		assertEquals(0, mText.mSize); // <= larger of the two cheap caches goes first
+		assertEquals(0, mHeights.mSize);
+		assertEquals(300, mImages.mSize);
+		assertEquals(700, mTimeline.mSize);
+		assertEquals(0, mTimeline.mTrimCount);
+	}
+
+	public void testSmallerBudgetReachesExpensiveCaches() {
+		mBudget.setBudgetBytes(200);
+
+		assertTrue(mBudget.getUsageBytes() <= 200);
+		assertEquals(0, mImages.mSize);
+		assertEquals(200, mTimeline.mSize);
+	}
+
+	public void testUiHiddenReleasesRecomputableCaches() {
+		mBudget.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+		assertEquals(0, mText.mSize);
+		assertEquals(0, mHeights.mSize);
+		assertEquals(400, mImages.mSize);
+		assertEquals(300, mTimeline.mSize);
+	}
+
+	public void testBackgroundReleasesImages() {
+		mBudget.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+		assertEquals(0, mImages.mSize);
+		assertEquals(300, mTimeline.mSize);
+		assertTrue(mBudget.getUsageBytes() <= BUDGET / 2);
+	}
+
+	public void testCompleteReleasesEverything() {
+		mBudget.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+
+		assertEquals(0, mBudget.getUsageBytes());
+	}
+
+	public void testRunningLowKeepsBudgetUnderPressure() {
+		mTimeline.mSize = 2000;
+		mBudget.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+		assertTrue(mBudget.getUsageBytes() <= BUDGET / 2);
+	}
+
+	public void testRegisterReplacesCacheWithSameName() {
+		FakeCache replacement = new FakeCache(10);
+		mBudget.register("text", MemoryBudget.COST_RECOMPUTE, replacement);
+
+		assertEquals(760, mBudget.getUsageBytes());
+		mBudget.unregister("text");
+		assertEquals(750, mBudget.getUsageBytes());
+	}
+}
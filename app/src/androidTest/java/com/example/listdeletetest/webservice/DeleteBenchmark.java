@@ -0,0 +1,75 @@
+package com.example.listdeletetest.webservice;
+
+import android.util.Log;
+
+import com.example.listdeletetest.model.Tweet;
+import com.example.listdeletetest.utils.Timeline;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deletes 10k out of 1M tweets through the range and id-set delete paths.
+ */
+public class DeleteBenchmark extends TestCase {
+	private static final String TAG = "DeleteBenchmark";
+	private static final int TOTAL = 1000000;
+	private static final int DELETE = 10000;
+
+	private List<Tweet> mTweets;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		mTweets = new ArrayList<Tweet>(TOTAL);
+		for (int i = 0; i < TOTAL; i++) {
+			mTweets.add(new Tweet(String.valueOf(i), "author", "message", null, null, TOTAL - i));
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		mTweets = null;
+		super.tearDown();
+	}
+
+	public void testDeleteRange() {
+		FauxWebService webService = new FauxWebService(mTweets);
+
+		long start = System.nanoTime();
+		webService.deleteRange(TOTAL / 2, TOTAL / 2 + DELETE);
+		long elapsed = System.nanoTime() - start;
+
+		Log.d(TAG, "deleteRange " + DELETE + "/" + TOTAL + ": " + elapsed / 1000 + "us");
+		assertEquals(TOTAL - DELETE, webService.size());
+	}
+
+	public void testDeleteIds() {
+		FauxWebService webService = new FauxWebService(mTweets);
+		Set<String> ids = new HashSet<String>(DELETE);
+		for (int i = 0; i < DELETE; i++) {
+			ids.add(String.valueOf(i * (TOTAL / DELETE)));
+		}
+
+		long start = System.nanoTime();
+		webService.deleteIds(ids);
+		long elapsed = System.nanoTime() - start;
+
+		Log.d(TAG, "deleteIds " + DELETE + "/" + TOTAL + ": " + elapsed / 1000 + "us");
+		assertEquals(TOTAL - DELETE, webService.size());
+	}
+
+	public void testLocalRangeCut() {
+		long start = System.nanoTime();
+		int removed = Timeline.removeRange(mTweets, Long.MIN_VALUE, DELETE + 1);
+		long elapsed = System.nanoTime() - start;
+
+		Log.d(TAG, "local range cut " + DELETE + "/" + TOTAL + ": " + elapsed / 1000 + "us");
+		assertEquals(DELETE, removed);
+		assertEquals(DELETE + 1, mTweets.get(mTweets.size() - 1).getTimeStamp());
+	}
+}
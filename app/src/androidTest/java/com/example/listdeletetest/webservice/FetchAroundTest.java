@@ -0,0 +1,210 @@
+package com.example.listdeletetest.webservice;
+
+import android.util.Log;
+
+import com.example.listdeletetest.model.Gap;
+import com.example.listdeletetest.model.Tweet;
+import com.example.listdeletetest.pipeline.Page;
+import com.example.listdeletetest.utils.Timeline;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jumps into a 1M tweet history with {@link WebService#fetchAround} and fills the resulting gap
+ * from both edges, counting round trips against the fake backend.
+ */
+public class FetchAroundTest extends TestCase {
+	private static final String TAG = "FetchAroundTest";
+	private static final int TOTAL = 1000000;
+	private static final int TOP_COUNT = 10;
+	private static final int AROUND_LIMIT = 20;
+	private static final int FILL_LIMIT = 5;
+
+	private FauxWebService mWebService;
+	private RecordingDelegate mDelegate;
+	private List<Tweet> mTimeline;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		List<Tweet> tweets = new ArrayList<Tweet>(TOTAL);
+		for (int i = 0; i < TOTAL; i++) {
+			tweets.add(new Tweet(String.valueOf(i), "author", "message", null, null, TOTAL - i));
+		}
+		mWebService = new FauxWebService(tweets);
+		mWebService.setLatency(0);
+		mDelegate = new RecordingDelegate();
+		mWebService.setDelegate(mDelegate);
+
+		mTimeline = new ArrayList<Tweet>(fetch(new Runnable() {
+			@Override
+			public void run() {
+				mWebService.fetchBefore(Long.MAX_VALUE, TOP_COUNT);
+			}
+		}));
+		mDelegate.mRoundTrips = 0;
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		mWebService = null;
+		mTimeline = null;
+		super.tearDown();
+	}
+
+	public void testJumpTakesOneRoundTrip() throws Exception {
+		final long target = TOTAL / 3;
+
+		long start = System.nanoTime();
+		Page page = jump(target);
+		long elapsed = System.nanoTime() - start;
+
+		Log.d(TAG, "jump to " + target + " of " + TOTAL + ": " + elapsed / 1000 + "us");
+		assertEquals(1, mDelegate.mRoundTrips);
+		assertEquals(AROUND_LIMIT, page.getTweets().size());
+
+		int position = Timeline.indexOfLoaded(mTimeline, target);
+		assertTrue(position >= 0);
+		assertEquals(target, mTimeline.get(position).getTimeStamp());
+
+		// top window, gap, jumped window
+		assertEquals(TOP_COUNT + 1 + AROUND_LIMIT, mTimeline.size());
+		Gap gap = (Gap) mTimeline.get(TOP_COUNT);
+		assertEquals(TOTAL - TOP_COUNT + 1, gap.getNewerTimeStamp());
+		assertEquals(target + AROUND_LIMIT / 2, gap.getOlderTimeStamp());
+		assertEquals(-1, Timeline.indexOfLoaded(mTimeline, target + AROUND_LIMIT));
+	}
+
+	public void testJumpToOldest() throws Exception {
+		Page page = jump(3);
+
+		assertEquals(1, mDelegate.mRoundTrips);
+		assertEquals(Long.MIN_VALUE, page.getOldest()); // <= nothing older exists
+		assertEquals(1, mTimeline.get(mTimeline.size() - 1).getTimeStamp());
+		assertTrue(mTimeline.get(TOP_COUNT) instanceof Gap);
+	}
+
+	public void testGapFillsFromBothEdges() throws Exception {
+		final long target = TOTAL - 80;
+		jump(target);
+
+		boolean fromNewerEdge = true;
+		int gaps;
+		while ((gaps = fillNextGap(fromNewerEdge)) > 0) {
+			fromNewerEdge = !fromNewerEdge;
+			assertEquals(1, gaps);
+		}
+
+		// contiguous from the top down to the jumped window, no duplicates
+		Set<String> ids = new HashSet<String>();
+		for (int i = 0; i < mTimeline.size(); i++) {
+			Tweet tweet = mTimeline.get(i);
+			assertFalse(tweet instanceof Gap);
+			assertTrue(ids.add(tweet.getId()));
+			assertEquals(TOTAL - i, tweet.getTimeStamp());
+		}
+		assertEquals(target - AROUND_LIMIT / 2 + 1, mTimeline.get(mTimeline.size() - 1).getTimeStamp());
+		Log.d(TAG, "filled " + mTimeline.size() + " tweets in " + mDelegate.mRoundTrips + " round trips");
+	}
+
+	private Page jump(final long target) throws InterruptedException {
+		List<Tweet> result = fetch(new Runnable() {
+			@Override
+			public void run() {
+				mWebService.fetchAround(target, AROUND_LIMIT);
+			}
+		});
+		Page page = Page.around(target, AROUND_LIMIT, result);
+		Timeline.mergeRun(mTimeline, page.getTweets(), page.getNewest(), page.getOldest());
+		return page;
+	}
+
+	/**
+	 * Fetches one page of the first gap and merges it.
+	 *
+	 * @return number of gaps before the fill
+	 */
+	private int fillNextGap(boolean fromNewerEdge) throws InterruptedException {
+		Gap gap = null;
+		int gaps = 0;
+		for (Tweet tweet : mTimeline) {
+			if (tweet instanceof Gap) {
+				gap = gap == null ? (Gap) tweet : gap;
+				gaps++;
+			}
+		}
+		if (gap == null) {
+			return 0;
+		}
+
+		final Gap request = gap;
+		Page page;
+		if (fromNewerEdge) {
+			page = Page.before(request.getNewerTimeStamp(), FILL_LIMIT, fetch(new Runnable() {
+				@Override
+				public void run() {
+					mWebService.fetchBefore(request.getNewerTimeStamp(), FILL_LIMIT);
+				}
+			}));
+		} else {
+			page = Page.since(request.getOlderTimeStamp(), fetch(new Runnable() {
+				@Override
+				public void run() {
+					mWebService.fetchSince(request.getOlderTimeStamp(), FILL_LIMIT);
+				}
+			}));
+		}
+		Timeline.mergeRun(mTimeline, page.getTweets(), page.getNewest(), page.getOldest());
+		return gaps;
+	}
+
+	private List<Tweet> fetch(Runnable request) throws InterruptedException {
+		mDelegate.mLatch = new CountDownLatch(1);
+		request.run();
+		assertTrue(mDelegate.mLatch.await(10, TimeUnit.SECONDS));
+		return mDelegate.mResult;
+	}
+
+	private static class RecordingDelegate implements WebService.Delegate {
+		volatile CountDownLatch mLatch;
+		volatile List<Tweet> mResult;
+		volatile int mRoundTrips;
+
+		private void record(List<Tweet> tweets) {
+			mResult = tweets;
+			mRoundTrips++;
+			mLatch.countDown();
+		}
+
+		@Override
+		public void handleResultNext(List<Tweet> tweets) {
+			record(tweets);
+		}
+
+		@Override
+		public void handleResultNewest(List<Tweet> tweets) {
+			record(tweets);
+		}
+
+		@Override
+		public void handleResultAround(long timeStamp, List<Tweet> tweets) {
+			record(tweets);
+		}
+
+		@Override
+		public void handleStreamInserted(List<Tweet> tweets) {
+		}
+
+		@Override
+		public void handleStreamDeleted(Collection<String> ids) {
+		}
+	}
+}
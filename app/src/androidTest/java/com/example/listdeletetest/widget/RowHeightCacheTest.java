@@ -0,0 +1,41 @@
+package com.example.listdeletetest.widget;
+
+import junit.framework.TestCase;
+
+public class RowHeightCacheTest extends TestCase {
+	private static final int ENTRY_BYTES = 48;
+	private static final int PORTRAIT = 1080;
+	private static final int LANDSCAPE = 1920;
+
+	private RowHeightCache mCache;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		mCache = new RowHeightCache();
+		for (int i = 0; i < 4; i++) {
+			mCache.put("tweet" + i, LANDSCAPE, 100);
+		}
+		for (int i = 0; i < 8; i++) {
+			mCache.put("tweet" + i, PORTRAIT, 200); // <= laid out in portrait now
+		}
+	}
+
+	public void testTrimFreesOnlyWhatWasAsked() {
+		mCache.get("tweet0", PORTRAIT); // <= now the most recently used
+
+		assertEquals(6 * ENTRY_BYTES, mCache.trim(6 * ENTRY_BYTES - 1)); // <= whole entries only
+		assertEquals(6, mCache.size());
+		// other width first, then the least recently used heights
+		assertEquals(-1, mCache.get("tweet0", LANDSCAPE));
+		assertEquals(200, mCache.get("tweet0", PORTRAIT));
+		assertEquals(-1, mCache.get("tweet1", PORTRAIT));
+		assertEquals(-1, mCache.get("tweet2", PORTRAIT));
+		assertEquals(200, mCache.get("tweet3", PORTRAIT));
+	}
+
+	public void testTrimEverything() {
+		assertEquals(12 * ENTRY_BYTES, mCache.trim(Long.MAX_VALUE));
+		assertEquals(0, mCache.getSizeBytes());
+	}
+}
@@ -0,0 +1,200 @@
+package com.example.listdeletetest.widget;
+
+import android.util.Log;
+
+import com.example.listdeletetest.model.Tweet;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Random;
+
+/**
+ * Lays out 50k rows of mixed heights in one and in three columns, then maps offsets and positions.
+ * Also grows the rows in live-update sized batches and compares that with laying out everything.
+ */
+public class RowLayoutEngineBenchmark extends TestCase {
+	private static final String TAG = "RowLayoutEngineBenchmark";
+	private static final int ROWS = 50000;
+	private static final int WIDTH = 1080;
+
+	private List<Tweet> mTweets;
+	private RowHeightCache mCache;
+	private TweetHeightEstimator mEstimator;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		Random random = new Random(42);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 280; i++) {
+			text.append((char) ('a' + random.nextInt(26)));
+		}
+		mTweets = new ArrayList<Tweet>(ROWS);
+		for (int i = 0; i < ROWS; i++) {
+			String message = text.substring(0, 10 + random.nextInt(270));
+			String postImage = random.nextInt(3) == 0 ? "http://example.com/" + i + ".jpg" : null;
+			mTweets.add(new Tweet(String.valueOf(i), "author", message, null, postImage, ROWS - i));
+		}
+		mCache = new RowHeightCache();
+		mEstimator = new TweetHeightEstimator(30, 180, 30, 390, 60, 48, 48);
+	}
+
+	public void testSingleColumn() {
+		RowLayoutEngine engine = new RowLayoutEngine(mCache, mEstimator);
+		engine.setWidth(WIDTH);
+
+		long start = System.nanoTime();
+		engine.setItems(mTweets);
+		long layout = System.nanoTime() - start;
+
+		assertOffsetsMapBack(engine, 0);
+		long lookups = timeLookups(engine);
+		long updates = timeMeasuredUpdates(engine);
+
+		Log.d(TAG, "1 column: layout " + layout / 1000 + "us, " + ROWS + " lookups " + lookups / 1000
+				+ "us, " + ROWS + " measured updates " + updates / 1000 + "us");
+
+		// measured heights are picked up from the cache by the next layout
+		start = System.nanoTime();
+		engine.setItems(mTweets);
+		long cachedLayout = System.nanoTime() - start;
+		Log.d(TAG, "1 column: layout from cache " + cachedLayout / 1000 + "us");
+		assertEquals(ROWS, mCache.size());
+		assertEquals(100, engine.getHeight(7));
+	}
+
+	public void testStaggeredColumns() {
+		RowLayoutEngine engine = new RowLayoutEngine(mCache, mEstimator);
+		engine.setColumnCount(3);
+		engine.setWidth(WIDTH);
+
+		long start = System.nanoTime();
+		engine.setItems(mTweets);
+		long layout = System.nanoTime() - start;
+
+		for (int column = 0; column < 3; column++) {
+			assertOffsetsMapBack(engine, column);
+		}
+		long lookups = timeLookups(engine);
+
+		Log.d(TAG, "3 columns: layout " + layout / 1000 + "us, " + ROWS + " lookups " + lookups / 1000 + "us");
+	}
+
+	public void testIncrementalUpdates() {
+		final int batch = 20;
+		RowLayoutEngine engine = new RowLayoutEngine(mCache, mEstimator);
+		engine.setWidth(WIDTH);
+		int half = ROWS / 2;
+		engine.setItems(mTweets.subList(half, half + batch));
+
+		// newer rows arrive at the top, older pages at the bottom
+		long start = System.nanoTime();
+		for (int end = half; end > 0; end -= batch) {
+			engine.prepend(mTweets.subList(Math.max(0, end - batch), end));
+		}
+		for (int from = half + batch; from < ROWS; from += batch) {
+			engine.append(mTweets.subList(from, Math.min(ROWS, from + batch)));
+		}
+		long incremental = System.nanoTime() - start;
+
+		// every 10th row gets deleted, one batch at a time
+		List<Tweet> remaining = new ArrayList<Tweet>(ROWS);
+		start = System.nanoTime();
+		Set<String> ids = new HashSet<String>();
+		for (int i = 0; i < ROWS; i++) {
+			if (i % 10 == 0) {
+				ids.add(mTweets.get(i).getId());
+				if (ids.size() == batch) {
+					engine.remove(ids);
+					ids.clear();
+				}
+			} else {
+				remaining.add(mTweets.get(i));
+			}
+		}
+		engine.remove(ids);
+		long removals = System.nanoTime() - start;
+
+		// same as a layout from scratch
+		RowLayoutEngine reference = new RowLayoutEngine(mCache, mEstimator);
+		reference.setWidth(WIDTH);
+		start = System.nanoTime();
+		reference.setItems(remaining);
+		long layout = System.nanoTime() - start;
+
+		assertEquals(reference.getCount(), engine.getCount());
+		assertEquals(reference.getTotalHeight(), engine.getTotalHeight());
+		for (int position = 0; position < remaining.size(); position += 13) {
+			assertEquals(reference.getOffsetForPosition(position), engine.getOffsetForPosition(position));
+		}
+		assertOffsetsMapBack(engine, 0, remaining.size());
+		Log.d(TAG, "1 column: " + ROWS / batch + " batches of " + batch + " prepended or appended "
+				+ incremental / 1000 + "us, removed " + removals / 1000 + "us, one layout of all rows "
+				+ layout / 1000 + "us");
+	}
+
+	/**
+	 * A recreated view used to copy the timeline into a new adapter with a new engine, laid out once on
+	 * attach and once more when the view got its width. The retained engine only lays out if the width changed.
+	 */
+	public void testRebind() {
+		long start = System.nanoTime();
+		List<Tweet> copy = new ArrayList<Tweet>();
+		copy.addAll(mTweets);
+		RowLayoutEngine fresh = new RowLayoutEngine(mCache, mEstimator);
+		fresh.setItems(copy);
+		fresh.setWidth(WIDTH);
+		long copied = System.nanoTime() - start;
+
+		RowLayoutEngine retained = new RowLayoutEngine(mCache, mEstimator);
+		retained.setWidth(WIDTH);
+		retained.setItems(mTweets);
+		start = System.nanoTime();
+		retained.setWidth(WIDTH);
+		long sameWidth = System.nanoTime() - start;
+		start = System.nanoTime();
+		retained.setWidth(WIDTH * 16 / 9);
+		long rotated = System.nanoTime() - start;
+
+		assertEquals(ROWS, retained.getCount());
+		Log.d(TAG, "rebind of " + ROWS + " rows: copy and new engine " + copied / 1000 + "us, retained engine "
+				+ sameWidth / 1000 + "us at the same width, " + rotated / 1000 + "us at a new width");
+	}
+
+	private void assertOffsetsMapBack(RowLayoutEngine engine, int column) {
+		assertOffsetsMapBack(engine, column, ROWS);
+	}
+
+	private void assertOffsetsMapBack(RowLayoutEngine engine, int column, int count) {
+		for (int position = 0; position < count; position += 97) {
+			if (engine.getColumn(position) == column) {
+				int offset = engine.getOffsetForPosition(position);
+				assertEquals(position, engine.getPositionForOffset(column, offset));
+				assertEquals(position, engine.getPositionForOffset(column, offset + engine.getHeight(position) - 1));
+			}
+		}
+	}
+
+	private long timeLookups(RowLayoutEngine engine) {
+		Random random = new Random(7);
+		int total = engine.getTotalHeight();
+		long start = System.nanoTime();
+		for (int i = 0; i < ROWS; i++) {
+			engine.getPositionForOffset(random.nextInt(total));
+		}
+		return System.nanoTime() - start;
+	}
+
+	private long timeMeasuredUpdates(RowLayoutEngine engine) {
+		int width = engine.getColumnWidth();
+		long start = System.nanoTime();
+		for (Tweet tweet : mTweets) {
+			engine.onRowMeasured(tweet, width, 100);
+		}
+		return System.nanoTime() - start;
+	}
+}
@@ -1,37 +1,97 @@
 package com.example.listdeletetest;
 
 import android.content.Context;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
+import android.widget.SectionIndexer;
 
+import com.example.listdeletetest.model.Gap;
 import com.example.listdeletetest.model.Tweet;
+import com.example.listdeletetest.utils.TimestampIndex;
+import com.example.listdeletetest.widget.RowLayoutEngine;
 import com.example.listdeletetest.widget.TweetItemView;
+import com.example.listdeletetest.widget.TweetTextCache;
+import com.example.listdeletetest.widget.TweetViewPool;
 
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
-public class ListAdapter extends ArrayAdapter<Tweet> {
+public class ListAdapter extends ArrayAdapter<Tweet> implements SectionIndexer {
 	private final static int VIEW_TYPE_INVISIBLE = 0;
 	private static int VIEW_TYPE_DEFAULT = 1;
+	private final static int VIEW_TYPE_GAP = 2;
 
-	private LinkedList<Tweet> mList;
-	private Set<Integer> mInvisibleItems = new HashSet<Integer>();
+	private static final int ROWS_PER_SECTION = 20;
 
-	public static ListAdapter instantiate(Context context) {
-		return new ListAdapter(context, new LinkedList<Tweet>());
+	private final List<Tweet> mList; // <= the controller's master list, random access for getItem(position)
+	private Set<Integer> mInvisibleItems = new HashSet<Integer>();
+	private final TweetViewPool mViewPool;
+	private final TweetTextCache mTextCache;
+	private final RowLayoutEngine mLayoutEngine;
+	private final TimestampIndex mTimestampIndex = new TimestampIndex(ROWS_PER_SECTION);
+	private boolean mTimestampIndexDirty = true;
+	private SelectionModel mSelection;
+
+	/**
+	 * Shows {@code timeline} without copying it. Whoever changes the list keeps {@code layoutEngine} in step
+	 * and calls {@link #notifyDataSetChanged}, see {@link ListController#getTimeline}.
+	 */
+	public static ListAdapter instantiate(Context context, List<Tweet> timeline, RowLayoutEngine layoutEngine,
+			TweetTextCache textCache) {
+		return new ListAdapter(context, timeline, layoutEngine, textCache);
 	}
 
-	private ListAdapter(Context context, LinkedList<Tweet> list) {
+	private ListAdapter(Context context, List<Tweet> list, RowLayoutEngine layoutEngine, TweetTextCache textCache) {
 		super(context, 0, list);
 		mList = list;
+		mViewPool = new TweetViewPool(context);
+		mTextCache = textCache;
+		mLayoutEngine = layoutEngine;
+	}
+
+	public TweetViewPool getViewPool() {
+		return mViewPool;
+	}
+
+	/**
+	 * Rows are drawn checked according to {@code selection}.
+	 */
+	public void setSelection(SelectionModel selection) {
+		mSelection = selection;
+	}
+
+	@Override
+	public void notifyDataSetChanged() {
+		mTimestampIndexDirty = true; // <= rebuilt once the fast scroller asks for it
+		super.notifyDataSetChanged();
+	}
+
+	/**
+	 * Inflates a screen full of rows while the main thread is idle.
+	 */
+	public void prefillViews() {
+		mViewPool.prefill();
+	}
+
+	/**
+	 * Stops prefilling and drops the pooled rows, to be called when the list view is destroyed.
+	 */
+	public void releaseViews() {
+		mViewPool.cancel();
 	}
 
 	@Override
 	public View getView(int position, View convertView, ViewGroup parent) {
 		switch (getItemViewType(position)) {
+			case VIEW_TYPE_GAP:
+				if (convertView == null) {
+					convertView = LayoutInflater.from(getContext()).inflate(R.layout.timeline_gap_row, parent, false);
+				}
+				return convertView;
+
 			case VIEW_TYPE_INVISIBLE:
 				if (convertView == null) {
 					convertView = new View(getContext());
@@ -42,13 +102,15 @@ public class ListAdapter extends ArrayAdapter<Tweet> {
 			default:
 				TweetItemView itemView;
 				if (convertView == null) {
-					itemView = new TweetItemView(getContext());
+					itemView = mViewPool.obtain();
+					itemView.setOnRowMeasuredListener(mLayoutEngine);
 				} else {
 					itemView = (TweetItemView) convertView;
 				}
 				itemView.setVisibility(View.VISIBLE);
 				Tweet tweet = getItem(position);
-				itemView.update(tweet);
+				itemView.update(tweet, mTextCache.getAuthorLine(tweet));
+				itemView.setChecked(mSelection != null && mSelection.isSelected(tweet));
 				return itemView;
 		}
 	}
@@ -56,6 +118,9 @@ public class ListAdapter extends ArrayAdapter<Tweet> {
 	@Override
 	public int getItemViewType(int position) {
 		Tweet item = getItem(position);
+		if (item instanceof Gap) {
+			return VIEW_TYPE_GAP;
+		}
 		if (mInvisibleItems.contains(item.hashCode())) {
 			return VIEW_TYPE_INVISIBLE;
 		}
@@ -64,30 +129,54 @@ public class ListAdapter extends ArrayAdapter<Tweet> {
 
 	@Override
 	public int getViewTypeCount() {
-		return 2;
+		return 3;
 	}
 
 	@Override
-	public long getItemId(int position) {
-		Tweet item = getItem(position);
-		int i = item.hashCode();
-		return i;
+	public boolean areAllItemsEnabled() {
+		return false; // <= there may be gap rows, see isEnabled
 	}
 
 	@Override
-	public boolean hasStableIds() {
-		return true;
+	public boolean isEnabled(int position) {
+		return !(getItem(position) instanceof Gap); // <= gaps can't be clicked or selected
 	}
 
-	public void replaceAll(List<Tweet> tweets) {
-		if(tweets == null || tweets.size() == 0)
-			return;
-
-		synchronized (this) {
-			mList.clear();
-			mList.addAll(tweets);
-			notifyDataSetChanged();
+	private TimestampIndex getTimestampIndex() {
+		if (mTimestampIndexDirty) {
+			mTimestampIndex.rebuild(mList);
+			mTimestampIndexDirty = false;
 		}
+		return mTimestampIndex;
+	}
+
+	@Override
+	public Object[] getSections() {
+		return getTimestampIndex().getLabels();
+	}
+
+	@Override
+	public int getPositionForSection(int section) {
+		return getTimestampIndex().getPositionForSection(section);
+	}
+
+	@Override
+	public int getSectionForPosition(int position) {
+		return getTimestampIndex().getSectionForPosition(position);
+	}
+
+	@Override
+	public long getItemId(int position) {
+		return getStableId(getItem(position));
+	}
+
+	static long getStableId(Tweet tweet) {
+		return tweet.hashCode();
+	}
+
+	@Override
+	public boolean hasStableIds() {
+		return true;
 	}
 
 	public void makeInvisible(List<Tweet> items) {
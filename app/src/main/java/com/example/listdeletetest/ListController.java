@@ -1,12 +1,30 @@
 package com.example.listdeletetest;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.example.listdeletetest.model.Gap;
 import com.example.listdeletetest.model.Tweet;
+import com.example.listdeletetest.pipeline.LiveUpdateBuffer;
+import com.example.listdeletetest.pipeline.Page;
+import com.example.listdeletetest.pipeline.PagePipeline;
+import com.example.listdeletetest.utils.MemoryBudget;
+import com.example.listdeletetest.utils.Metrics;
+import com.example.listdeletetest.utils.Timeline;
 import com.example.listdeletetest.webservice.WebService;
+import com.example.listdeletetest.widget.RowLayoutEngine;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class ListController implements WebService.Delegate {
+public class ListController implements WebService.Delegate, PagePipeline.Committer {
 	private final ArrayList<Tweet> mPrepareDeleteTweets;
 	private boolean mIsBusy;
 
@@ -16,40 +34,170 @@ public class ListController implements WebService.Delegate {
 		void handleRequestComplete();
 	}
 
+	public static interface LiveUpdateDelegate {
+		/**
+		 * Called right after a batch of pushed changes reached the adapter, before the list laid out again.
+		 *
+		 * @param insertedCount number of rows prepended
+		 * @param tweetCount number of new tweets among them, without a gap row
+		 * @param removedPositions positions the removed rows had before the batch, ascending
+		 */
+		void handleLiveBatch(int insertedCount, int tweetCount, int[] removedPositions);
+	}
+
+	public static interface NavigationDelegate {
+		/**
+		 * Called once the tweets around a {@link #jumpTo} target are in the adapter.
+		 */
+		void handleJumpComplete(int position);
+
+		/**
+		 * Called right after the rows from {@code position} on were replaced by a fetched range,
+		 * changing the row count by {@code delta}, before the list laid out again.
+		 */
+		void handleRangeMerged(int position, int delta);
+	}
+
 	public static int INITIAL_COUNT = 10;
 	public static int NEXT_REQUEST_LIMIT = 5;
 	public static int NEWEST_REQUEST_LIMIT = 2;
+	public static int AROUND_REQUEST_LIMIT = 20;
+
+	public static final int ESTIMATED_TWEET_BYTES = 768; // <= tweet with its strings, plus the adapter's reference
+	public static final String METRIC_LIVE_COMMIT = "ListController.liveCommit";
 
 	private WebService mWebService;
+	private PagePipeline mPipeline;
 	private ListAdapter mAdapter;
 	private List<Tweet> mMasterList;
 	private RequestStateChangeDelegate mRequestStateChangeDelegate;
+	private LiveUpdateDelegate mLiveUpdateDelegate;
+	private NavigationDelegate mNavigationDelegate;
+	private MemoryBudget mMemoryBudget;
+	private SelectionModel mSelection;
+	private RowLayoutEngine mLayoutEngine;
+	private Tweet mLastVisible; // <= lowest row on screen, the timeline is never trimmed above it
+
+	private final LiveUpdateBuffer mLiveBuffer = new LiveUpdateBuffer();
+	private final AtomicBoolean mLiveCommitScheduled = new AtomicBoolean();
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+	private static final long NO_RANGE_REQUEST = Long.MIN_VALUE;
+	private long mRangeRequestTimeStamp = NO_RANGE_REQUEST; // <= the request in flight returns a complete range
+	private int mRangeRequestLimit;
+	private boolean mStreamJoined; // <= a live batch was prepended since subscribing
+	private Gap mDeferredGap; // <= gap scrolled into view while busy, filled once the request in flight is done
+	private boolean mDeferredGapFromNewerEdge;
+	private static final long NO_JUMP = Long.MIN_VALUE;
+	private long mDeferredJump = NO_JUMP; // <= jump requested while busy
+	private final Set<String> mDeletedDuringRequest = new HashSet<String>(); // <= kept out of the page in flight
 
 	public void setRequestStateChangeDelegate(RequestStateChangeDelegate requestStateChangeDelegate) {
 		mRequestStateChangeDelegate = requestStateChangeDelegate;
 	}
 
-	public ListController(WebService webService, ListAdapter adapter) {
-		mAdapter = adapter;
+	public void setLiveUpdateDelegate(LiveUpdateDelegate liveUpdateDelegate) {
+		mLiveUpdateDelegate = liveUpdateDelegate;
+	}
+
+	public void setNavigationDelegate(NavigationDelegate navigationDelegate) {
+		mNavigationDelegate = navigationDelegate;
+	}
+
+	/**
+	 * The budget is enforced whenever the timeline grew.
+	 */
+	public void setMemoryBudget(MemoryBudget memoryBudget) {
+		mMemoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Tweets leaving the timeline are dropped from this selection.
+	 */
+	public void setSelectionModel(SelectionModel selection) {
+		mSelection = selection;
+	}
+
+	/**
+	 * The engine is kept in step with the master list, also while no adapter is attached, so a new
+	 * view only lays out again if its width differs.
+	 */
+	public void setLayoutEngine(RowLayoutEngine layoutEngine) {
+		mLayoutEngine = layoutEngine;
+		mLayoutEngine.setItems(mMasterList);
+	}
+
+	/**
+	 * @return the master list, newest first; adapters show it without a copy and must not change it
+	 */
+	public List<Tweet> getTimeline() {
+		return mMasterList;
+	}
+
+	/**
+	 * The controller holds no view state, it outlives fragment views and is handed from one
+	 * adapter to the next with {@link #attach} and {@link #detach}.
+	 */
+	public ListController(WebService webService, PagePipeline pipeline) {
 		mMasterList = new ArrayList<Tweet>();
 		mPrepareDeleteTweets = new ArrayList<Tweet>();
 
 		mWebService = webService;
 		mWebService.setDelegate(this);
+		mPipeline = pipeline;
+		mPipeline.setCommitter(this);
 	}
 
 
+	/**
+	 * Binds a new adapter created on {@link #getTimeline}. Only the visible rows get bound by the list,
+	 * nothing is copied, fetched or parsed again.
+	 */
+	public void attach(ListAdapter adapter) {
+		mAdapter = adapter;
+		if (mPrepareDeleteTweets.size() > 0) {
+			mAdapter.makeInvisible(mPrepareDeleteTweets);
+		}
+	}
+
+	/**
+	 * Drops all references to the current view. Results arriving afterwards still go into the
+	 * master list and show up on the next {@link #attach}.
+	 */
+	public void detach() {
+		mAdapter = null;
+		mRequestStateChangeDelegate = null;
+		mLiveUpdateDelegate = null;
+		mNavigationDelegate = null;
+		mDeferredGap = null;
+		mLastVisible = null;
+	}
+
+	/**
+	 * Called by the attached view as it scrolls, {@link #trimTimeline} keeps the rows up to this one.
+	 */
+	public void setLastVisiblePosition(int position) {
+		mLastVisible = position >= 0 && position < mMasterList.size() ? mMasterList.get(position) : null;
+	}
+
+	public boolean isBusy() {
+		return mIsBusy;
+	}
+
+	public int getPendingDeleteCount() {
+		return mPrepareDeleteTweets.size();
+	}
+
 	public void fetchInitial() {
 		if (mIsBusy)
 			return;
 
-		if (mMasterList.size() > 0) {
-			mAdapter.replaceAll(mMasterList);
-		}
-
 		if (mMasterList.size() < INITIAL_COUNT) {
 			mIsBusy = true;
-			mWebService.fetchBefore(81, INITIAL_COUNT); // <= dummy timestamp, 20 before end of master list
+			// merged as a range, live tweets may have arrived on top of it already
+			mRangeRequestTimeStamp = 81; // <= dummy timestamp, 20 before end of master list
+			mRangeRequestLimit = INITIAL_COUNT;
+			mWebService.fetchBefore(mRangeRequestTimeStamp, INITIAL_COUNT);
 		}
 	}
 
@@ -57,10 +205,17 @@ public class ListController implements WebService.Delegate {
 		if (mIsBusy)
 			return;
 
+		if (mMasterList.isEmpty()) {
+			fetchInitial(); // <= everything was deleted, nothing to continue from
+			return;
+		}
+
 		Tweet lastItem = mMasterList.get(mMasterList.size() - 1);
 		if(lastItem != null) {
 			mIsBusy = true;
-			mRequestStateChangeDelegate.handleRequestStart();
+			if (mRequestStateChangeDelegate != null) {
+				mRequestStateChangeDelegate.handleRequestStart();
+			}
 			mWebService.fetchBefore(lastItem.getTimeStamp(), NEXT_REQUEST_LIMIT); // <= fetch all older before existing last item
 		}
 	}
@@ -69,62 +224,479 @@ public class ListController implements WebService.Delegate {
 		if (mIsBusy)
 			return;
 
+		if (mMasterList.isEmpty()) {
+			fetchInitial();
+			return;
+		}
+
 		Tweet firstItem = mMasterList.get(0);
 		if(firstItem != null) {
 			mIsBusy = true;
-			mRequestStateChangeDelegate.handleRequestStart();
+			if (mRequestStateChangeDelegate != null) {
+				mRequestStateChangeDelegate.handleRequestStart();
+			}
 			mWebService.fetchSince(firstItem.getTimeStamp(), NEWEST_REQUEST_LIMIT); // <= fetch all new since existing first item
 		}
 	}
 
 
+	/**
+	 * Shows the tweets around {@code timeStamp}. If that part of the timeline is not loaded yet, it is
+	 * fetched in a single request and shown as a separate window, with a {@link Gap} row towards the
+	 * loaded tweets which fills in lazily once it is scrolled into view.
+	 *
+	 * @return {@code false} if another request is in flight, the jump starts once that one is done
+	 */
+	public boolean jumpTo(long timeStamp) {
+		int position = Timeline.indexOfLoaded(mMasterList, timeStamp);
+		if (position >= 0) {
+			if (mNavigationDelegate != null) {
+				mNavigationDelegate.handleJumpComplete(position);
+			}
+			return true;
+		}
+
+		if (mIsBusy) {
+			mDeferredJump = timeStamp; // <= the latest jump wins
+			return false;
+		}
+
+		mIsBusy = true;
+		if (mRequestStateChangeDelegate != null) {
+			mRequestStateChangeDelegate.handleRequestStart();
+		}
+		mWebService.fetchAround(timeStamp, AROUND_REQUEST_LIMIT);
+		return true;
+	}
+
+	/**
+	 * Fetches the next page of a gap, starting at the edge the list approaches it from.
+	 */
+	public void fillGap(Gap gap, boolean fromNewerEdge) {
+		if (mIsBusy) {
+			mDeferredGap = gap;
+			mDeferredGapFromNewerEdge = fromNewerEdge;
+			return;
+		}
+
+		mIsBusy = true;
+		mRangeRequestLimit = NEXT_REQUEST_LIMIT;
+		if (fromNewerEdge) {
+			mRangeRequestTimeStamp = gap.getNewerTimeStamp();
+			mWebService.fetchBefore(mRangeRequestTimeStamp, NEXT_REQUEST_LIMIT);
+		} else {
+			mRangeRequestTimeStamp = gap.getOlderTimeStamp();
+			mWebService.fetchSince(mRangeRequestTimeStamp, NEXT_REQUEST_LIMIT);
+		}
+	}
+
 	@Override
 	public void handleResultNext(List<Tweet> tweets) {
-		if (tweets != null && tweets.size() > 0) { // <= prevent adapter notifychanged when there are no new items
-			for (Tweet tweet : tweets) {
-				mMasterList.add(tweet);
-			}
-			mAdapter.replaceAll(mMasterList);
+		if (mRangeRequestTimeStamp != NO_RANGE_REQUEST && tweets != null) {
+			submitPage(Page.before(mRangeRequestTimeStamp, mRangeRequestLimit, tweets));
+			return;
 		}
-		mRequestStateChangeDelegate.handleRequestComplete();
-		mIsBusy = false;
+		submitPage(new Page(Page.KIND_NEXT, tweets));
 	}
 
 
 	@Override
 	public void handleResultNewest(List<Tweet> tweets) {
+		if (mRangeRequestTimeStamp != NO_RANGE_REQUEST && tweets != null) {
+			submitPage(Page.since(mRangeRequestTimeStamp, tweets));
+			return;
+		}
+		submitPage(new Page(Page.KIND_NEWEST, tweets));
+	}
+
+	@Override
+	public void handleResultAround(long timeStamp, List<Tweet> tweets) {
+		if (tweets == null) {
+			finishRequest();
+			return;
+		}
+		submitPage(Page.around(timeStamp, AROUND_REQUEST_LIMIT, tweets));
+	}
+
+	private void submitPage(Page page) {
+		if (page.getTweets() == null || !mPipeline.submit(page)) {
+			// nothing to prepare or pipeline saturated, the next request picks the tweets up again
+			finishRequest();
+		}
+	}
+
+	@Override
+	public void commitPage(Page page) {
+		if (page.isFailed()) {
+			finishRequest(); // <= nothing to show, and a failed range must not replace its part of the timeline
+			return;
+		}
+		List<Tweet> tweets = withoutDeletedDuringRequest(page.getTweets());
+		if (page.getKind() == Page.KIND_RANGE) {
+			commitRange(page, tweets);
+		} else if (tweets.size() > 0) { // <= prevent adapter notifychanged when there are no new items
+			if (page.getKind() == Page.KIND_NEWEST) {
+				mMasterList.addAll(0, tweets);
+				if (mLayoutEngine != null) {
+					mLayoutEngine.prepend(tweets);
+				}
+			} else {
+				mMasterList.addAll(tweets);
+				if (mLayoutEngine != null) {
+					mLayoutEngine.append(tweets);
+				}
+			}
+			if (mAdapter != null) {
+				mAdapter.notifyDataSetChanged();
+			}
+			enforceMemoryBudget();
+		}
+		finishRequest();
+	}
+
+	/**
+	 * @return {@code tweets} without those the stream deleted while their page was on its way
+	 */
+	private List<Tweet> withoutDeletedDuringRequest(List<Tweet> tweets) {
+		if (mDeletedDuringRequest.isEmpty()) {
+			return tweets;
+		}
+		List<Tweet> kept = new ArrayList<Tweet>(tweets.size());
+		List<String> dropped = new ArrayList<String>();
 		for (Tweet tweet : tweets) {
-			mMasterList.add(0, tweet);
+			if (mDeletedDuringRequest.contains(tweet.getId())) {
+				dropped.add(tweet.getId());
+			} else {
+				kept.add(tweet);
+			}
+		}
+		mPipeline.forget(dropped); // <= accepted by the dedupe stage, but never shown
+		return kept;
+	}
+
+	/**
+	 * Merges a complete time range into the timeline, even when it is empty, to close the gaps it covers.
+	 */
+	private void commitRange(Page page, List<Tweet> tweets) {
+		int sizeBefore = mMasterList.size();
+		int position = page.getNewest() == Long.MAX_VALUE ? 0 : Timeline.indexOfFirstBefore(mMasterList, page.getNewest() + 1);
+		List<Tweet> replaced = Timeline.mergeRun(mMasterList, tweets, page.getNewest(), page.getOldest());
+		if (mLayoutEngine != null) {
+			mLayoutEngine.setItems(mMasterList); // <= the run may land anywhere, lay out again
+		}
+
+		// tweets the server no longer has may be fetched again if they ever come back
+		Set<String> ids = new HashSet<String>(tweets.size());
+		for (Tweet tweet : tweets) {
+			ids.add(tweet.getId());
+		}
+		List<String> dropped = new ArrayList<String>();
+		for (Tweet tweet : replaced) {
+			if (!(tweet instanceof Gap) && !ids.contains(tweet.getId())) {
+				dropped.add(tweet.getId());
+			}
+		}
+		mPipeline.forget(dropped);
+
+		enforceMemoryBudget();
+		if (mAdapter == null) {
+			return;
+		}
+		mAdapter.notifyDataSetChanged();
+
+		if (mNavigationDelegate != null) {
+			if (page.isJump()) {
+				int target = Timeline.indexOfFirstBefore(mMasterList, page.getTarget() + 1);
+				mNavigationDelegate.handleJumpComplete(Math.max(0, Math.min(target, mMasterList.size() - 1)));
+			} else {
+				mNavigationDelegate.handleRangeMerged(position, mMasterList.size() - sizeBefore);
+			}
+		}
+	}
+
+	/**
+	 * Subscribes to pushed tweets. Tweets posted while unsubscribed are not pushed, the first batch gets a gap
+	 * row towards the loaded top which fetches them.
+	 */
+	public void startLiveUpdates() {
+		mStreamJoined = false;
+		mWebService.subscribe();
+	}
+
+	public void stopLiveUpdates() {
+		mWebService.unsubscribe();
+	}
+
+	@Override
+	public void handleStreamInserted(List<Tweet> tweets) {
+		mLiveBuffer.addInserted(tweets);
+		scheduleLiveCommit();
+	}
+
+	@Override
+	public void handleStreamDeleted(Collection<String> ids) {
+		mLiveBuffer.addDeleted(ids);
+		scheduleLiveCommit();
+	}
+
+	private void scheduleLiveCommit() {
+		if (mLiveCommitScheduled.compareAndSet(false, true)) { // <= at most one commit per frame
+			mHandler.post(mPostLiveCommit);
+		}
+	}
+
+	private final Runnable mPostLiveCommit = new Runnable() {
+		@Override
+		public void run() {
+			Choreographer.getInstance().postFrameCallback(mLiveCommit);
+		}
+	};
+
+	private final Choreographer.FrameCallback mLiveCommit = new Choreographer.FrameCallback() {
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			mLiveCommitScheduled.set(false);
+			commitLiveBatch();
+		}
+	};
+
+	private void commitLiveBatch() {
+		LiveUpdateBuffer.Batch batch = mLiveBuffer.drain();
+		if (!batch.isEmpty()) {
+			long start = System.nanoTime();
+			applyLiveBatch(batch);
+			Metrics.record(METRIC_LIVE_COMMIT, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Applies the live updates of one frame: a binary search per deleted row, then one pass over the
+	 * list below the topmost deleted row and one move of the list for the prepend.
+	 */
+	void applyLiveBatch(LiveUpdateBuffer.Batch batch) {
+		List<Tweet> inserted = mPipeline.accept(batch.getInserted());
+		Map<String, Long> deleted = mPipeline.forgetShown(batch.getDeleted()); // <= most are not loaded at all
+		if (mIsBusy) {
+			// the page in flight may hold some of them, fetched before they were deleted; it may have
+			// passed the dedupe stage already, in which case they are neither found below nor unknown
+			mDeletedDuringRequest.addAll(batch.getDeleted());
+		}
+		Tweet top = mMasterList.isEmpty() ? null : mMasterList.get(0); // <= bounds the missed tweets, even if deleted now
+
+		List<Tweet> removed = new ArrayList<Tweet>(deleted.size());
+		int[] removedPositions = Timeline.removeByTimeStamp(mMasterList, deleted, removed);
+		if (mSelection != null && !mSelection.isEmpty()) {
+			for (Tweet tweet : removed) {
+				mSelection.remove(tweet);
+			}
+		}
+		int tweetCount = inserted.size();
+		if (!inserted.isEmpty() && !mStreamJoined) {
+			// the stream starts at the server's newest tweet, which is not necessarily the newest one
+			// loaded; keep the tweets in between reachable through a gap row
+			mStreamJoined = true;
+			long oldestInserted = inserted.get(inserted.size() - 1).getTimeStamp();
+			if (top != null && !(top instanceof Gap) && Gap.isNeeded(oldestInserted, top.getTimeStamp())) {
+				inserted = new ArrayList<Tweet>(inserted);
+				inserted.add(new Gap(oldestInserted, top.getTimeStamp()));
+			}
+		}
+		mMasterList.addAll(0, inserted);
+		if (mLayoutEngine != null) {
+			mLayoutEngine.remove(deleted.keySet());
+			mLayoutEngine.prepend(inserted);
+		}
+		enforceMemoryBudget();
+		if (mAdapter == null || (inserted.isEmpty() && removed.isEmpty())) {
+			return;
+		}
+		mAdapter.notifyDataSetChanged();
+
+		if (mLiveUpdateDelegate != null) {
+			mLiveUpdateDelegate.handleLiveBatch(inserted.size(), tweetCount, removedPositions);
+		}
+	}
+
+	private void enforceMemoryBudget() {
+		if (mMemoryBudget != null) {
+			mMemoryBudget.enforce();
+		}
+	}
+
+	public long getTimelineSizeBytes() {
+		return (long) mMasterList.size() * ESTIMATED_TWEET_BYTES;
+	}
+
+	/**
+	 * Drops the oldest tweets to release about {@code bytes}, always keeping the first
+	 * {@link #INITIAL_COUNT} and those up to the last visible row. Dropped tweets come back through
+	 * {@link #fetchBottom}.
+	 *
+	 * @return number of bytes released
+	 */
+	public long trimTimeline(long bytes) {
+		long drop = (bytes + ESTIMATED_TWEET_BYTES - 1) / ESTIMATED_TWEET_BYTES;
+		int keep = (int) Math.max(INITIAL_COUNT, mMasterList.size() - drop);
+		if (mLastVisible != null) {
+			// found by time stamp, live updates may have shifted the positions since the last scroll
+			keep = Math.max(keep, Timeline.indexOfFirstBefore(mMasterList, mLastVisible.getTimeStamp()));
+		}
+		if (keep >= mMasterList.size()) {
+			return 0;
+		}
+
+		while (keep > 0 && mMasterList.get(keep - 1) instanceof Gap) {
+			keep--; // <= never end on a gap, fetchBottom continues from the last tweet
+		}
+		List<Tweet> dropped = mMasterList.subList(keep, mMasterList.size());
+		int removed = dropped.size();
+		mPipeline.forget(dropped);
+		if (mSelection != null && !mSelection.isEmpty()) {
+			for (Tweet tweet : dropped) {
+				mSelection.remove(tweet);
+			}
+		}
+		if (mLayoutEngine != null) {
+			mLayoutEngine.remove(Timeline.getIds(dropped));
+		}
+		dropped.clear();
+		if (mAdapter != null) {
+			mAdapter.notifyDataSetChanged();
+		}
+		return (long) removed * ESTIMATED_TWEET_BYTES;
+	}
+
+	private void finishRequest() {
+		if (mRequestStateChangeDelegate != null) {
+			mRequestStateChangeDelegate.handleRequestComplete();
 		}
-		mAdapter.replaceAll(mMasterList);
-		mRequestStateChangeDelegate.handleRequestComplete();
 		mIsBusy = false;
+		mRangeRequestTimeStamp = NO_RANGE_REQUEST;
+		mDeletedDuringRequest.clear(); // <= the page of the request, if any, is committed
+
+		long jump = mDeferredJump;
+		mDeferredJump = NO_JUMP;
+		Gap deferred = mDeferredGap;
+		mDeferredGap = null;
+		if (jump != NO_JUMP) {
+			jumpTo(jump); // <= the view moves away, gaps still in view ask again on the next scroll
+		} else if (deferred != null && mMasterList.contains(deferred)) {
+			fillGap(deferred, mDeferredGapFromNewerEdge);
+		}
 	}
 
 	public void prepareDelete(ArrayList<Tweet> selectedItems) {
 		mPrepareDeleteTweets.addAll(selectedItems);
-		mAdapter.makeInvisible(selectedItems);
+		if (mAdapter != null) {
+			mAdapter.makeInvisible(selectedItems);
+		}
+	}
+
+	/**
+	 * Selects every tweet in the timeline as of now, tweets arriving afterwards stay unselected.
+	 */
+	public void selectAll(SelectionModel selection) {
+		if (mMasterList.isEmpty()) {
+			selection.selectAll(0, Long.MIN_VALUE, Long.MAX_VALUE, Collections.<Gap>emptyList());
+			return;
+		}
+		List<Gap> gaps = new ArrayList<Gap>();
+		for (int i = 0; i < mMasterList.size(); i++) {
+			if (mMasterList.get(i) instanceof Gap) {
+				gaps.add((Gap) mMasterList.get(i));
+			}
+		}
+		selection.selectAll(mMasterList.size() - gaps.size(), mMasterList.get(0).getTimeStamp(),
+				mMasterList.get(mMasterList.size() - 1).getTimeStamp(), gaps);
+	}
+
+	/**
+	 * Selects the tweets between the two most recently selected ones, see {@link SelectionModel#selectRange}.
+	 *
+	 * @return number of tweets that became selected
+	 */
+	public int selectRange(SelectionModel selection) {
+		return selection.selectRange(mMasterList);
+	}
+
+	/**
+	 * Resolves the selection against the master list in a single pass, without any
+	 * position lookups in the adapter.
+	 */
+	public int prepareDelete(SelectionModel selection) {
+		ArrayList<Tweet> selectedItems = new ArrayList<Tweet>(selection.getCount());
+		for (Tweet tweet : mMasterList) {
+			if (selection.isSelected(tweet)) {
+				selectedItems.add(tweet);
+			}
+		}
+		prepareDelete(selectedItems);
+		return selectedItems.size();
 	}
 
 	public void doDelete() {
 		if (mPrepareDeleteTweets.size() > 0) {
-			// remove locally
+			Set<String> ids = new HashSet<String>(mPrepareDeleteTweets.size());
+			long newest = Long.MIN_VALUE;
+			long oldest = Long.MAX_VALUE;
 			for (Tweet tweet : mPrepareDeleteTweets) {
-				mMasterList.remove(tweet);
+				ids.add(tweet.getId());
+				newest = Math.max(newest, tweet.getTimeStamp());
+				oldest = Math.min(oldest, tweet.getTimeStamp());
+			}
+			mPrepareDeleteTweets.clear();
+			mPipeline.forget(ids);
+
+			if (Timeline.isRange(mMasterList, oldest, newest + 1, ids)) {
+				// contiguous in the local list, remove it as one cut
+				Timeline.removeRange(mMasterList, oldest, newest + 1);
+			} else {
+				// remove locally in a single pass
+				Timeline.removeIds(mMasterList, ids);
 			}
+			// contiguous here does not mean complete on the server, e.g. next to a gap,
+			// so the server only gets the ids which were actually selected
+			mWebService.deleteIds(ids);
 
 			// update adapter
-			mAdapter.makeAllVisibleAndNotify(false);
-			mAdapter.replaceAll(mMasterList);
+			if (mLayoutEngine != null) {
+				mLayoutEngine.remove(ids);
+			}
+			if (mAdapter != null) {
+				mAdapter.makeAllVisibleAndNotify(true);
+			}
+		}
+	}
 
-			// call to webservice
-			mWebService.delete(mPrepareDeleteTweets);
+	/**
+	 * Deletes every tweet older than {@code timeStamp}, locally as a single cut of the master list.
+	 */
+	public void deleteOlderThan(long timeStamp) {
+		List<Tweet> older = mMasterList.subList(Timeline.indexOfFirstBefore(mMasterList, timeStamp), mMasterList.size());
+		mPipeline.forget(older);
+		if (mLayoutEngine != null) {
+			mLayoutEngine.remove(Timeline.getIds(older));
+		}
+		int removed = Timeline.removeRange(mMasterList, Long.MIN_VALUE, timeStamp);
+		mWebService.deleteRange(Long.MIN_VALUE, timeStamp);
+		if (removed > 0 && mAdapter != null) {
+			mAdapter.notifyDataSetChanged();
 		}
 	}
 
+	/**
+	 * Stops live updates and the page pipeline threads, the controller must not be used afterwards.
+	 */
+	public void release() {
+		stopLiveUpdates();
+		mPipeline.quit();
+	}
+
 	public void undoPrepareDelete() {
 		mPrepareDeleteTweets.clear();
-		mAdapter.makeAllVisibleAndNotify(true);
+		if (mAdapter != null) {
+			mAdapter.makeAllVisibleAndNotify(true);
+		}
 	}
 
 }
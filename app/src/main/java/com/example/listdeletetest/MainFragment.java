@@ -1,11 +1,13 @@
 package com.example.listdeletetest;
 
 
+import android.app.AlertDialog;
 import android.app.Fragment;
+import android.content.DialogInterface;
 import android.os.Bundle;
 import android.os.Parcelable;
 import android.support.v4.widget.SwipeRefreshLayout;
-import android.util.SparseBooleanArray;
+import android.text.InputType;
 import android.view.ActionMode;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -13,21 +15,45 @@ import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.AbsListView;
-
+import android.widget.AdapterView;
+import android.widget.Checkable;
+import android.widget.EditText;
+import android.widget.ListView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.example.listdeletetest.model.Gap;
 import com.example.listdeletetest.model.Tweet;
-import com.example.listdeletetest.webservice.FauxWebService;
-import com.example.listdeletetest.webservice.WebService;
+import com.example.listdeletetest.utils.MemoryBudget;
+import com.example.listdeletetest.utils.Metrics;
+import com.example.listdeletetest.widget.TimelineListView;
 import com.jensdriller.libs.undobar.UndoBar;
 
-import java.util.ArrayList;
-
 
 public class MainFragment extends Fragment {
+	public static final String METRIC_COLD_START = "MainFragment.coldStart";
+	public static final String METRIC_REBIND = "MainFragment.rebind";
+
+	private TimelineHolderFragment mHolder;
 	private ListController mListController;
+	private ListAdapter mAdapter;
 	private AbsListView mListView;
 	private SwipeRefreshLayout mSwipeLayout;
+	private TextView mNewTweetsMarker;
+	private int mNewTweetsCount;
 	private boolean mUserHasInitiallyScrolled;
+	private int mLastFirstVisibleItem;
+	private SelectionModel mSelection;
+	private ActionMode mActionMode;
+	private boolean mKeepSelection; // <= the action mode ends with the view, not by the user
+
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		setHasOptionsMenu(true);
+	}
 
 	@Override
 	public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -36,8 +62,17 @@ public class MainFragment extends Fragment {
 
 	@Override
 	public void onViewCreated(View view, Bundle savedInstanceState) {
+		final long start = System.nanoTime();
 		mListView = (AbsListView) view.findViewById(R.id.listView);
 		mSwipeLayout = (SwipeRefreshLayout) view.findViewById(R.id.swipe_container);
+		mNewTweetsMarker = (TextView) view.findViewById(R.id.new_tweets_marker);
+		mNewTweetsMarker.setOnClickListener(new View.OnClickListener() {
+			@Override
+			public void onClick(View v) {
+				mListView.setSelection(0);
+				hideNewTweetsMarker();
+			}
+		});
 		mSwipeLayout.setOnRefreshListener(new SwipeRefreshLayout.OnRefreshListener() {
 			@Override
 			public void onRefresh() {
@@ -51,10 +86,21 @@ public class MainFragment extends Fragment {
 				android.R.color.holo_red_light);
 
 
-		WebService webService = new FauxWebService(getActivity());
-		ListAdapter adapter = ListAdapter.instantiate(getActivity());
+		mHolder = TimelineHolderFragment.obtain(getFragmentManager());
+		final boolean isRebind = mHolder.isInitialized(); // <= holder survived a configuration change
+		if (!isRebind) {
+			mHolder.initialize(getActivity());
+		}
+		mListController = mHolder.getListController();
+		ListAdapter adapter = ListAdapter.instantiate(getActivity(), mListController.getTimeline(),
+				mHolder.getLayoutEngine(), mHolder.getTextCache());
+		mAdapter = adapter;
+
+		mHolder.getMemoryBudget().register(TimelineHolderFragment.CACHE_ROW_VIEWS, MemoryBudget.COST_RECOMPUTE, adapter.getViewPool());
 
-		mListController = new ListController(webService, adapter);
+		mSelection = mHolder.getSelection();
+		adapter.setSelection(mSelection);
+		mListController.attach(adapter);
 		mListController.setRequestStateChangeDelegate(new ListController.RequestStateChangeDelegate() {
 			@Override
 			public void handleRequestStart() {
@@ -67,9 +113,92 @@ public class MainFragment extends Fragment {
 			}
 		});
 
+		mListController.setLiveUpdateDelegate(new ListController.LiveUpdateDelegate() {
+			@Override
+			public void handleLiveBatch(int insertedCount, int tweetCount, int[] removedPositions) {
+				int first = mListView.getFirstVisiblePosition();
+				View firstView = mListView.getChildAt(0);
+				int top = firstView == null ? 0 : firstView.getTop();
+				if (first == 0 && top >= 0) {
+					return; // <= already at the top, let the new tweets show up
+				}
+
+				// keep the visible rows in place, the list did not lay out the batch yet
+				int removedAbove = 0;
+				while (removedAbove < removedPositions.length && removedPositions[removedAbove] < first) {
+					removedAbove++;
+				}
+				int position = first + insertedCount - removedAbove;
+				if (mListView instanceof ListView) {
+					((ListView) mListView).setSelectionFromTop(position, top);
+				} else {
+					mListView.setSelection(position);
+				}
+				if (tweetCount > 0) {
+					showNewTweetsMarker(tweetCount);
+				}
+			}
+		});
+
+		mListController.setNavigationDelegate(new ListController.NavigationDelegate() {
+			@Override
+			public void handleJumpComplete(int position) {
+				hideNewTweetsMarker();
+				mListView.setSelection(position);
+			}
+
+			@Override
+			public void handleRangeMerged(int position, int delta) {
+				int first = mListView.getFirstVisiblePosition();
+				if (delta == 0 || position > first || mListView.getChildCount() == 0) {
+					return; // <= merged below the visible rows, or nothing shown yet
+				}
+
+				// filled upwards, keep the rows below the gap in place
+				View firstView = mListView.getChildAt(0);
+				int top = firstView == null ? 0 : firstView.getTop();
+				if (mListView instanceof ListView) {
+					((ListView) mListView).setSelectionFromTop(first + delta, top);
+				} else {
+					mListView.setSelection(first + delta);
+				}
+			}
+		});
+
+		if (mListView instanceof TimelineListView) {
+			((TimelineListView) mListView).setLayoutEngine(mHolder.getLayoutEngine());
+		}
 		mListView.setAdapter(adapter);
-		mListView.setChoiceMode(AbsListView.CHOICE_MODE_MULTIPLE_MODAL);
-		mListView.setMultiChoiceModeListener(mMultiChoiceModeListener);
+		mListView.setFastScrollEnabled(true); // <= sections come from the adapter's timestamp index
+		if (isRebind) {
+			if (mListView instanceof ListView) {
+				((ListView) mListView).setSelectionFromTop(mHolder.getFirstVisiblePosition(), mHolder.getFirstVisibleTop());
+			} else {
+				mListView.setSelection(mHolder.getFirstVisiblePosition());
+			}
+		}
+		// selection lives in the SelectionModel and is drawn by the adapter, the list's own check states stay unused
+		mListView.setOnItemLongClickListener(new AdapterView.OnItemLongClickListener() {
+			@Override
+			public boolean onItemLongClick(AdapterView<?> parent, View view, int position, long id) {
+				if (mActionMode == null) {
+					startSelection();
+				}
+				toggleSelection(position);
+				return true;
+			}
+		});
+		mListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+			@Override
+			public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+				if (mActionMode != null) {
+					toggleSelection(position);
+				}
+			}
+		});
+		if (mHolder.isSelecting()) {
+			startSelection(); // <= the selection survived the configuration change
+		}
 		mListView.setOnScrollListener(new AbsListView.OnScrollListener() {
 			@Override
 			public void onScrollStateChanged(AbsListView view, int scrollState) {
@@ -80,6 +209,15 @@ public class MainFragment extends Fragment {
 
 			@Override
 			public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+				if (firstVisibleItem == 0 && mNewTweetsCount > 0) {
+					hideNewTweetsMarker();
+				}
+				if (visibleItemCount > 0) {
+					mListController.setLastVisiblePosition(firstVisibleItem + visibleItemCount - 1);
+				}
+				fillVisibleGap(view, firstVisibleItem, visibleItemCount);
+				mLastFirstVisibleItem = firstVisibleItem;
+
 				if(!mUserHasInitiallyScrolled) return;
 
 				int visibleCount = firstVisibleItem + visibleItemCount;
@@ -90,28 +228,181 @@ public class MainFragment extends Fragment {
 		});
 
 
+		// measure until the first frame of the new view is about to be drawn
+		mListView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+			@Override
+			public boolean onPreDraw() {
+				mListView.getViewTreeObserver().removeOnPreDrawListener(this);
+				Metrics.record(isRebind ? METRIC_REBIND : METRIC_COLD_START, System.nanoTime() - start);
+				return true;
+			}
+		});
+
 		// start
+		mSwipeLayout.setRefreshing(mListController.isBusy()); // <= a request may still be in flight from before
 		mListController.fetchInitial();
+		adapter.prefillViews(); // <= inflate rows while waiting for the first page
+		if (mListController.getPendingDeleteCount() > 0) {
+			showUndoBar(mListController.getPendingDeleteCount());
+		}
 	}
 
+	@Override
+	public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
+		inflater.inflate(R.menu.timeline_menu, menu);
+	}
 
-	private AbsListView.MultiChoiceModeListener mMultiChoiceModeListener = new AbsListView.MultiChoiceModeListener() {
-		@Override
-		public void onItemCheckedStateChanged(ActionMode mode, int position, long id, boolean checked) {
-			final int checkedCount = getListView().getCheckedItemCount();
-			switch (checkedCount) {
-				case 0:
-					mode.setSubtitle(null);
-					break;
-				case 1:
-					mode.setSubtitle("1 item selected");
-					break;
-				default:
-					mode.setSubtitle("" + checkedCount + " items selected");
-					break;
+	@Override
+	public boolean onOptionsItemSelected(MenuItem item) {
+		if (item.getItemId() == R.id.action_jump_to_time) {
+			showJumpDialog();
+			return true;
+		}
+		return super.onOptionsItemSelected(item);
+	}
+
+	private void showJumpDialog() {
+		final EditText input = new EditText(getActivity());
+		input.setInputType(InputType.TYPE_CLASS_NUMBER);
+		input.setHint(R.string.jump_to_time_hint);
+		new AlertDialog.Builder(getActivity())
+				.setTitle(R.string.action_jump_to_time)
+				.setView(input)
+				.setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
+					@Override
+					public void onClick(DialogInterface dialog, int which) {
+						try {
+							if (!mListController.jumpTo(Long.parseLong(input.getText().toString()))) {
+								Toast.makeText(getActivity(), R.string.jump_to_time_queued, Toast.LENGTH_SHORT).show();
+							}
+						} catch (NumberFormatException e) {
+							// nothing entered
+						}
+					}
+				})
+				.setNegativeButton(android.R.string.cancel, null)
+				.show();
+	}
+
+	/**
+	 * Fills the first gap row on screen from the edge the list scrolls towards it from.
+	 */
+	private void fillVisibleGap(AbsListView view, int firstVisibleItem, int visibleItemCount) {
+		for (int position = firstVisibleItem; position < firstVisibleItem + visibleItemCount; position++) {
+			Object item = view.getItemAtPosition(position);
+			if (item instanceof Gap) {
+				boolean fromNewerEdge;
+				if (firstVisibleItem != mLastFirstVisibleItem) {
+					fromNewerEdge = firstVisibleItem > mLastFirstVisibleItem; // <= scrolling down into it
+				} else {
+					fromNewerEdge = position - firstVisibleItem >= visibleItemCount / 2; // <= not moving, continue the rows mostly in view
+				}
+				mListController.fillGap((Gap) item, fromNewerEdge);
+				return;
 			}
 		}
+	}
+
+	private void showNewTweetsMarker(int count) {
+		mNewTweetsCount += count;
+		mNewTweetsMarker.setText(mNewTweetsCount == 1 ? "1 new tweet" : "" + mNewTweetsCount + " new tweets");
+		mNewTweetsMarker.setVisibility(View.VISIBLE);
+	}
 
+	private void hideNewTweetsMarker() {
+		mNewTweetsCount = 0;
+		mNewTweetsMarker.setVisibility(View.GONE);
+	}
+
+	@Override
+	public void onStart() {
+		super.onStart();
+		mListController.startLiveUpdates();
+	}
+
+	@Override
+	public void onStop() {
+		mListController.stopLiveUpdates(); // <= no pushes while in the background, a gap row covers what is missed
+		super.onStop();
+	}
+
+	@Override
+	public void onDestroyView() {
+		if (mActionMode != null) {
+			mKeepSelection = true;
+			mActionMode.finish();
+			mKeepSelection = false;
+		}
+		View firstView = mListView.getChildAt(0);
+		Tweet firstVisible = firstView == null ? null : (Tweet) mListView.getItemAtPosition(mListView.getFirstVisiblePosition());
+		mHolder.saveScrollPosition(firstVisible, firstView == null ? 0 : firstView.getTop());
+		mListController.detach();
+		mAdapter.releaseViews(); // <= the idle prefill would go on inflating rows for this destroyed activity
+		mHolder.getMemoryBudget().unregister(TimelineHolderFragment.CACHE_ROW_VIEWS);
+		super.onDestroyView();
+	}
+
+	private void showUndoBar(int count) {
+		new UndoBar.Builder(getActivity())
+				.setMessage("Delete " + count + " items")
+				.setListener(new UndoBar.Listener() {
+					@Override
+					public void onHide() {
+						mListController.doDelete();
+					}
+
+					@Override
+					public void onUndo(Parcelable parcelable) {
+						mListController.undoPrepareDelete();
+					}
+				})
+				.show();
+	}
+
+	private void startSelection() {
+		mHolder.setSelecting(true);
+		mActionMode = getActivity().startActionMode(mActionModeCallback);
+		updateSubtitle();
+	}
+
+	private void toggleSelection(int position) {
+		mSelection.toggle((Tweet) mListView.getAdapter().getItem(position));
+		refreshCheckedRows();
+		updateSubtitle();
+	}
+
+	/**
+	 * Redraws the checked state of the rows on screen, rows bound later pick it up in getView.
+	 */
+	private void refreshCheckedRows() {
+		int first = mListView.getFirstVisiblePosition();
+		for (int i = 0; i < mListView.getChildCount(); i++) {
+			View child = mListView.getChildAt(i);
+			if (child instanceof Checkable) {
+				((Checkable) child).setChecked(mSelection.isSelected((Tweet) mListView.getAdapter().getItem(first + i)));
+			}
+		}
+	}
+
+	private void updateSubtitle() {
+		if (mActionMode == null) {
+			return;
+		}
+		final int checkedCount = mSelection.getCount();
+		switch (checkedCount) {
+			case 0:
+				mActionMode.setSubtitle(null);
+				break;
+			case 1:
+				mActionMode.setSubtitle("1 item selected");
+				break;
+			default:
+				mActionMode.setSubtitle("" + checkedCount + " items selected");
+				break;
+		}
+	}
+
+	private ActionMode.Callback mActionModeCallback = new ActionMode.Callback() {
 		@Override
 		public boolean onCreateActionMode(ActionMode mode, Menu menu) {
 			MenuInflater inflater = getActivity().getMenuInflater();
@@ -128,33 +419,20 @@ public class MainFragment extends Fragment {
 		@Override
 		public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
 			switch (item.getItemId()) {
-				case R.id.action_delete:
-
-					SparseBooleanArray checked = getListView().getCheckedItemPositions();
-
-					ArrayList<Tweet> selectedItems = new ArrayList<Tweet>();
-					for (int i = 0; i < checked.size(); i++) {
-						int position = checked.keyAt(i);
-						if (checked.valueAt(i))
-							selectedItems.add((Tweet) getListView().getAdapter().getItem(position));
-					}
-					mListController.prepareDelete(selectedItems);
-
+				case R.id.action_select_range:
+					mListController.selectRange(mSelection);
+					refreshCheckedRows();
+					updateSubtitle();
+					break;
 
-					new UndoBar.Builder(getActivity())
-							.setMessage("Delete " + getListView().getCheckedItemCount() + " items")
-							.setListener(new UndoBar.Listener() {
-								@Override
-								public void onHide() {
-									mListController.doDelete();
-								}
+				case R.id.action_select_all:
+					mListController.selectAll(mSelection);
+					refreshCheckedRows();
+					updateSubtitle();
+					break;
 
-								@Override
-								public void onUndo(Parcelable parcelable) {
-									mListController.undoPrepareDelete();
-								}
-							})
-							.show();
+				case R.id.action_delete:
+					showUndoBar(mListController.prepareDelete(mSelection));
 
 					mode.finish();
 					break;
@@ -164,7 +442,12 @@ public class MainFragment extends Fragment {
 
 		@Override
 		public void onDestroyActionMode(ActionMode mode) {
-
+			mActionMode = null;
+			if (!mKeepSelection) {
+				mHolder.setSelecting(false);
+				mSelection.clear();
+				refreshCheckedRows();
+			}
 		}
 	};
 
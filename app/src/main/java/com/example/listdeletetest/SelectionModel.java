@@ -0,0 +1,152 @@
+package com.example.listdeletetest;
+
+import com.example.listdeletetest.model.Gap;
+import com.example.listdeletetest.model.Tweet;
+import com.example.listdeletetest.utils.Timeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Multi-selection keyed by tweet id.
+ *
+ * The selection is stored as a mode flag plus a set of exceptions: in normal mode the
+ * exceptions are the selected ids, after {@link #selectAll} they are the deselected ones.
+ * That keeps toggles and the selected count O(1) and makes select-all independent of the
+ * row count.
+ *
+ * Select-all only covers the tweets present at that moment. It records their time stamp bounds
+ * and the gaps in between, tweets arriving later fall outside of them and stay unselected.
+ *
+ * Nothing is kept by position, rows shift whenever tweets are prepended, trimmed or deleted.
+ */
+public class SelectionModel {
+	private final Set<String> mExceptions = new HashSet<String>();
+	private boolean mInverted;
+	private long mNewest = Long.MIN_VALUE; // <= bounds of the tweets present at select-all
+	private long mOldest = Long.MAX_VALUE;
+	private List<Gap> mGaps = Collections.emptyList();
+	private int mCount;
+	private Tweet mAnchor; // <= the two most recently selected tweets, for selectRange
+	private Tweet mLast;
+
+	public void setSelected(Tweet tweet, boolean selected) {
+		if (tweet instanceof Gap) {
+			return;
+		}
+		if (selected) {
+			mAnchor = mLast;
+			mLast = tweet;
+		}
+		if (isSelected(tweet) == selected) {
+			return;
+		}
+		if (!mExceptions.remove(tweet.getId())) {
+			mExceptions.add(tweet.getId());
+		}
+		mCount += selected ? 1 : -1;
+	}
+
+	public void toggle(Tweet tweet) {
+		setSelected(tweet, !isSelected(tweet));
+	}
+
+	public boolean isSelected(Tweet tweet) {
+		return !(tweet instanceof Gap) && mExceptions.contains(tweet.getId()) != isCoveredBySelectAll(tweet.getTimeStamp());
+	}
+
+	private boolean isCoveredBySelectAll(long timeStamp) {
+		if (!mInverted || timeStamp > mNewest || timeStamp < mOldest) {
+			return false;
+		}
+		for (int i = 0; i < mGaps.size(); i++) {
+			Gap gap = mGaps.get(i);
+			if (timeStamp < gap.getNewerTimeStamp() && timeStamp > gap.getOlderTimeStamp()) {
+				return false; // <= loaded into a gap after select-all
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Drops a tweet which left the timeline, e.g. deleted by another client, from the selection.
+	 */
+	public void remove(Tweet tweet) {
+		if (isSelected(tweet)) {
+			mCount--;
+		}
+		mExceptions.remove(tweet.getId());
+	}
+
+	/**
+	 * Selects all tweets of {@code timeline} between the two most recently selected tweets, inclusive.
+	 * Their positions are looked up now, so rows added or removed since they were selected do not matter.
+	 *
+	 * @return number of tweets that became selected
+	 */
+	public int selectRange(List<Tweet> timeline) {
+		if (mAnchor == null || mLast == null) {
+			return 0;
+		}
+		Tweet anchor = mAnchor;
+		Tweet last = mLast;
+		int from = indexOf(timeline, anchor);
+		int to = indexOf(timeline, last);
+		int start = Math.min(from, to);
+		int end = Math.min(timeline.size() - 1, Math.max(from, to));
+		int added = 0;
+		for (int position = start; position <= end; position++) {
+			Tweet tweet = timeline.get(position);
+			if (!(tweet instanceof Gap) && !isSelected(tweet)) {
+				setSelected(tweet, true);
+				added++;
+			}
+		}
+		mAnchor = anchor; // <= the range ends stay the anchors, not its last row
+		mLast = last;
+		return added;
+	}
+
+	/**
+	 * @return position of {@code tweet}, or where it was if it has been removed since
+	 */
+	private static int indexOf(List<Tweet> timeline, Tweet tweet) {
+		int index = Timeline.indexOf(timeline, tweet.getId(), tweet.getTimeStamp());
+		return index >= 0 ? index : Timeline.indexOfFirstBefore(timeline, tweet.getTimeStamp() + 1);
+	}
+
+	/**
+	 * Selects the {@code count} tweets with {@code oldest <= timeStamp <= newest}, except for those
+	 * inside one of {@code gaps}.
+	 */
+	public void selectAll(int count, long newest, long oldest, List<Gap> gaps) {
+		mExceptions.clear();
+		mInverted = true;
+		mNewest = newest;
+		mOldest = oldest;
+		mGaps = new ArrayList<Gap>(gaps);
+		mCount = count;
+	}
+
+	public void clear() {
+		mExceptions.clear();
+		mInverted = false;
+		mNewest = Long.MIN_VALUE;
+		mOldest = Long.MAX_VALUE;
+		mGaps = Collections.emptyList();
+		mCount = 0;
+		mAnchor = null;
+		mLast = null;
+	}
+
+	public int getCount() {
+		return mCount;
+	}
+
+	public boolean isEmpty() {
+		return getCount() == 0;
+	}
+}
@@ -0,0 +1,188 @@
+package com.example.listdeletetest;
+
+import android.app.ActivityManager;
+import android.app.Fragment;
+import android.app.FragmentManager;
+import android.content.Context;
+import android.os.Bundle;
+
+import com.example.listdeletetest.model.Tweet;
+import com.example.listdeletetest.pipeline.PagePipeline;
+import com.example.listdeletetest.utils.ImageLoader;
+import com.example.listdeletetest.utils.ImageMemoryCache;
+import com.example.listdeletetest.utils.MemoryBudget;
+import com.example.listdeletetest.utils.Timeline;
+import com.example.listdeletetest.webservice.FauxWebService;
+import com.example.listdeletetest.widget.RowHeightCache;
+import com.example.listdeletetest.widget.RowLayoutEngine;
+import com.example.listdeletetest.widget.TweetHeightEstimator;
+import com.example.listdeletetest.widget.TweetTextCache;
+
+import java.util.List;
+
+/**
+ * Headless, retained fragment holding the data layer: web service, page pipeline, text and row height caches, the
+ * row layout and the {@link ListController} with its master timeline, pending deletes and in-flight requests.
+ * It survives configuration changes, so a recreated {@link MainFragment} only has to rebind.
+ */
+public class TimelineHolderFragment extends Fragment {
+	public static final String TAG = "TimelineHolderFragment";
+
+	public static final String CACHE_TIMELINE = "timeline";
+	public static final String CACHE_IMAGES = "images";
+	public static final String CACHE_TEXT = "text";
+	public static final String CACHE_ROW_HEIGHTS = "rowHeights";
+	public static final String CACHE_ROW_VIEWS = "rowViews";
+
+	private static final int BUDGET_SHARE_OF_MEMORY_CLASS = 4;
+
+	private ListController mListController;
+	private TweetTextCache mTextCache;
+	private RowHeightCache mHeightCache;
+	private RowLayoutEngine mLayoutEngine;
+	private MemoryBudget mMemoryBudget;
+	private ImageMemoryCache mImageCache;
+	private final SelectionModel mSelection = new SelectionModel();
+	private boolean mSelecting;
+	private Tweet mFirstVisible; // <= by tweet, live updates and merges keep moving the rows without a view
+	private int mFirstVisibleTop;
+
+	public static TimelineHolderFragment obtain(FragmentManager fragmentManager) {
+		TimelineHolderFragment holder = (TimelineHolderFragment) fragmentManager.findFragmentByTag(TAG);
+		if (holder == null) {
+			holder = new TimelineHolderFragment();
+			fragmentManager.beginTransaction()
+					.add(holder, TAG)
+					.commit();
+		}
+		return holder;
+	}
+
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		setRetainInstance(true);
+	}
+
+	public boolean isInitialized() {
+		return mListController != null;
+	}
+
+	public void initialize(Context context) {
+		Context appContext = context.getApplicationContext(); // <= must not hold on to the activity
+		ActivityManager activityManager = (ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE);
+		long budgetBytes = activityManager.getMemoryClass() * 1024L * 1024L / BUDGET_SHARE_OF_MEMORY_CLASS;
+		ImageLoader.initialize(appContext, (int) budgetBytes); // <= before anything loads images, at most the whole budget
+
+		mTextCache = new TweetTextCache();
+		mHeightCache = new RowHeightCache();
+		mListController = new ListController(new FauxWebService(appContext), new PagePipeline(appContext, mTextCache));
+
+		mMemoryBudget = new MemoryBudget(budgetBytes);
+		mMemoryBudget.register(CACHE_TIMELINE, MemoryBudget.COST_REFETCH, new MemoryBudget.Cache() {
+			@Override
+			public long getSizeBytes() {
+				return mListController.getTimelineSizeBytes();
+			}
+
+			@Override
+			public long trim(long bytes) {
+				return mListController.trimTimeline(bytes);
+			}
+		});
+		mImageCache = ImageLoader.getMemoryCache(appContext);
+		mImageCache.setMemoryBudget(mMemoryBudget);
+		mMemoryBudget.register(CACHE_IMAGES, MemoryBudget.COST_RELOAD, mImageCache);
+		mMemoryBudget.register(CACHE_TEXT, MemoryBudget.COST_RECOMPUTE, mTextCache);
+		mMemoryBudget.register(CACHE_ROW_HEIGHTS, MemoryBudget.COST_RECOMPUTE, mHeightCache);
+		mListController.setMemoryBudget(mMemoryBudget);
+		mListController.setSelectionModel(mSelection);
+		mLayoutEngine = new RowLayoutEngine(mHeightCache, TweetHeightEstimator.fromResources(appContext.getResources()));
+		mListController.setLayoutEngine(mLayoutEngine);
+	}
+
+	public ListController getListController() {
+		return mListController;
+	}
+
+	public TweetTextCache getTextCache() {
+		return mTextCache;
+	}
+
+	public RowHeightCache getHeightCache() {
+		return mHeightCache;
+	}
+
+	public RowLayoutEngine getLayoutEngine() {
+		return mLayoutEngine;
+	}
+
+	public MemoryBudget getMemoryBudget() {
+		return mMemoryBudget;
+	}
+
+	/**
+	 * The multi-selection, kept here so it outlives the view and its action mode.
+	 */
+	public SelectionModel getSelection() {
+		return mSelection;
+	}
+
+	public boolean isSelecting() {
+		return mSelecting;
+	}
+
+	public void setSelecting(boolean selecting) {
+		mSelecting = selecting;
+	}
+
+	public void saveScrollPosition(Tweet firstVisible, int firstVisibleTop) {
+		mFirstVisible = firstVisible;
+		mFirstVisibleTop = firstVisibleTop;
+	}
+
+	/**
+	 * @return the current position of the row saved as first visible, or of the row which took its
+	 * place if it left the timeline meanwhile
+	 */
+	public int getFirstVisiblePosition() {
+		if (mFirstVisible == null) {
+			return 0;
+		}
+		List<Tweet> timeline = mListController.getTimeline();
+		int position = Timeline.indexOf(timeline, mFirstVisible.getId(), mFirstVisible.getTimeStamp());
+		if (position < 0) {
+			position = Math.min(Timeline.indexOfFirstBefore(timeline, mFirstVisible.getTimeStamp() + 1), timeline.size() - 1);
+		}
+		return Math.max(0, position);
+	}
+
+	public int getFirstVisibleTop() {
+		return mFirstVisibleTop;
+	}
+
+	@Override
+	public void onTrimMemory(int level) {
+		super.onTrimMemory(level);
+		if (mMemoryBudget != null) {
+			mMemoryBudget.onTrimMemory(level);
+		}
+	}
+
+	@Override
+	public void onLowMemory() {
+		super.onLowMemory();
+		if (mMemoryBudget != null) {
+			mMemoryBudget.onTrimMemory(TRIM_MEMORY_COMPLETE);
+		}
+	}
+
+	@Override
+	public void onDestroy() {
+		if (mListController != null) {
+			mListController.release();
+			mImageCache.setMemoryBudget(null); // <= the image cache outlives this fragment
+		}
+		super.onDestroy();
+	}
+}
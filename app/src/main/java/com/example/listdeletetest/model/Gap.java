@@ -0,0 +1,35 @@
+package com.example.listdeletetest.model;
+
+/**
+ * Placeholder row for tweets which exist on the server but were not loaded yet, between two
+ * loaded parts of a discontiguous timeline. It covers the time stamps strictly between its
+ * older and newer bound, and sorts in the timeline right before the tweet at its older bound.
+ */
+public class Gap extends Tweet {
+	private final long mNewerTimeStamp;
+
+	public Gap(long newerTimeStamp, long olderTimeStamp) {
+		super("gap:" + newerTimeStamp + ":" + olderTimeStamp, "", "", null, null, olderTimeStamp);
+		mNewerTimeStamp = newerTimeStamp;
+	}
+
+	public long getNewerTimeStamp() {
+		return mNewerTimeStamp;
+	}
+
+	public long getOlderTimeStamp() {
+		return getTimeStamp();
+	}
+
+	/**
+	 * @return {@code false} if no time stamp lies strictly between the bounds, i.e. nothing is missing
+	 */
+	public static boolean isNeeded(long newerTimeStamp, long olderTimeStamp) {
+		return newerTimeStamp - olderTimeStamp > 1;
+	}
+
+	@Override
+	public String toString() {
+		return "Gap@" + mNewerTimeStamp + ".." + getTimeStamp();
+	}
+}
@@ -44,6 +44,16 @@ public class Tweet {
 		mTimeStamp = timeStamp;
     }
 
+    public Tweet(String id, String authorName, String message, String profileImageUrl, String postImageUrl, long timeStamp) {
+        mId = id;
+        mAuthorName = authorName;
+        mMessage = message;
+        mProfileImageUrl = profileImageUrl;
+        mPostImageUrl = postImageUrl;
+
+        mTimeStamp = timeStamp;
+    }
+
 	public long getTimeStamp() {
 		return mTimeStamp;
 	}
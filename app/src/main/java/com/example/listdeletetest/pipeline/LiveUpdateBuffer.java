@@ -0,0 +1,83 @@
+package com.example.listdeletetest.pipeline;
+
+import com.example.listdeletetest.model.Tweet;
+import com.example.listdeletetest.utils.Timeline;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects pushed inserts and deletions from any thread until the next frame drains them
+ * as one batch. A deletion of a tweet that is still buffered cancels its insert.
+ */
+public class LiveUpdateBuffer {
+
+	public static class Batch {
+		private final List<Tweet> mInserted;
+		private final Set<String> mDeleted;
+
+		Batch(List<Tweet> inserted, Set<String> deleted) {
+			mInserted = inserted;
+			mDeleted = deleted;
+		}
+
+		/**
+		 * @return inserted tweets, ordered by descending time stamp
+		 */
+		public List<Tweet> getInserted() {
+			return mInserted;
+		}
+
+		public Set<String> getDeleted() {
+			return mDeleted;
+		}
+
+		public boolean isEmpty() {
+			return mInserted.isEmpty() && mDeleted.isEmpty();
+		}
+	}
+
+	private Map<String, Tweet> mInserted = new LinkedHashMap<String, Tweet>();
+	private Set<String> mDeleted = new HashSet<String>();
+
+	public synchronized void addInserted(List<Tweet> tweets) {
+		for (Tweet tweet : tweets) {
+			mInserted.put(tweet.getId(), tweet);
+		}
+	}
+
+	public synchronized void addDeleted(Collection<String> ids) {
+		for (String id : ids) {
+			if (mInserted.remove(id) == null) {
+				mDeleted.add(id);
+			}
+		}
+	}
+
+	public synchronized boolean isEmpty() {
+		return mInserted.isEmpty() && mDeleted.isEmpty();
+	}
+
+	/**
+	 * Hands out everything collected so far and starts a new batch.
+	 */
+	public Batch drain() {
+		Map<String, Tweet> inserted;
+		Set<String> deleted;
+		synchronized (this) {
+			inserted = mInserted;
+			deleted = mDeleted;
+			mInserted = new LinkedHashMap<String, Tweet>();
+			mDeleted = new HashSet<String>();
+		}
+		List<Tweet> tweets = new ArrayList<Tweet>(inserted.values());
+		Collections.sort(tweets, Timeline.NEWEST_FIRST);
+		return new Batch(tweets, deleted);
+	}
+}
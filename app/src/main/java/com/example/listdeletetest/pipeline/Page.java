@@ -0,0 +1,137 @@
+package com.example.listdeletetest.pipeline;
+
+import com.example.listdeletetest.model.Tweet;
+
+import java.util.List;
+
+/**
+ * A page of tweets on its way from the web service to the adapter.
+ */
+public class Page {
+	public static final int KIND_NEXT = 0; // <= older tweets, appended at the bottom
+	public static final int KIND_NEWEST = 1; // <= newer tweets, prepended at the top
+	public static final int KIND_RANGE = 2; // <= every tweet in a time range, merged with Timeline.mergeRun
+
+	private final int mKind;
+	private List<Tweet> mTweets;
+	private long mNewest = Long.MAX_VALUE;
+	private long mOldest = Long.MIN_VALUE;
+	private long mTarget = Long.MIN_VALUE;
+	private boolean mFailed;
+
+	public Page(int kind, List<Tweet> tweets) {
+		mKind = kind;
+		mTweets = tweets;
+	}
+
+	private Page(List<Tweet> tweets, long newest, long oldest) {
+		this(KIND_RANGE, tweets);
+		mNewest = newest;
+		mOldest = oldest;
+	}
+
+	/**
+	 * Range page for the result of {@code fetchAround(timeStamp, limit)}.
+	 */
+	public static Page around(long timeStamp, int limit, List<Tweet> tweets) {
+		long newest = timeStamp;
+		long oldest = timeStamp;
+		int newer = 0;
+		for (Tweet tweet : tweets) {
+			newest = Math.max(newest, tweet.getTimeStamp());
+			oldest = Math.min(oldest, tweet.getTimeStamp());
+			if (tweet.getTimeStamp() > timeStamp) {
+				newer++;
+			}
+		}
+		if (newer < limit / 2) {
+			newest = Long.MAX_VALUE; // <= got less than asked for, nothing newer exists
+		}
+		if (tweets.size() < limit) {
+			oldest = Long.MIN_VALUE; // <= the server ran out of older tweets
+		}
+		Page page = new Page(tweets, newest, oldest);
+		page.mTarget = timeStamp;
+		return page;
+	}
+
+	/**
+	 * Range page for the result of {@code fetchBefore(timeStamp, limit)}.
+	 */
+	public static Page before(long timeStamp, int limit, List<Tweet> tweets) {
+		long oldest = Long.MIN_VALUE;
+		if (tweets.size() >= limit) {
+			oldest = timeStamp - 1;
+			for (Tweet tweet : tweets) {
+				oldest = Math.min(oldest, tweet.getTimeStamp());
+			}
+		}
+		return new Page(tweets, timeStamp - 1, oldest);
+	}
+
+	/**
+	 * Range page for the result of {@code fetchSince(timeStamp, limit)}, which returns the oldest
+	 * tweets newer than {@code timeStamp}.
+	 */
+	public static Page since(long timeStamp, List<Tweet> tweets) {
+		long newest = Long.MAX_VALUE;
+		if (!tweets.isEmpty()) {
+			newest = timeStamp + 1;
+			for (Tweet tweet : tweets) {
+				newest = Math.max(newest, tweet.getTimeStamp());
+			}
+		}
+		return new Page(tweets, newest, timeStamp + 1);
+	}
+
+	public int getKind() {
+		return mKind;
+	}
+
+	/**
+	 * @return the tweets of this page, ordered by descending time stamp once past the decode stage
+	 */
+	public List<Tweet> getTweets() {
+		return mTweets;
+	}
+
+	void setTweets(List<Tweet> tweets) {
+		mTweets = tweets;
+	}
+
+	/**
+	 * @return upper bound of the time range a {@link #KIND_RANGE} page covers completely, inclusive
+	 */
+	public long getNewest() {
+		return mNewest;
+	}
+
+	/**
+	 * @return lower bound of the time range a {@link #KIND_RANGE} page covers completely, inclusive
+	 */
+	public long getOldest() {
+		return mOldest;
+	}
+
+	/**
+	 * @return {@code true} if this page is the result of a jump to {@link #getTarget()}
+	 */
+	public boolean isJump() {
+		return mTarget != Long.MIN_VALUE;
+	}
+
+	public long getTarget() {
+		return mTarget;
+	}
+
+	/**
+	 * @return {@code true} if a pipeline stage failed on this page, its tweets must not be shown
+	 */
+	public boolean isFailed() {
+		return mFailed;
+	}
+
+	void setFailed() {
+		mFailed = true;
+	}
+}
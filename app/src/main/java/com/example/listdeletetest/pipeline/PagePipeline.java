@@ -0,0 +1,268 @@
+package com.example.listdeletetest.pipeline;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.example.listdeletetest.model.Tweet;
+import com.example.listdeletetest.utils.ImageLoader;
+import com.example.listdeletetest.utils.Metrics;
+import com.example.listdeletetest.utils.Timeline;
+import com.example.listdeletetest.widget.TweetTextCache;
+import com.squareup.picasso.Picasso;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Prepares incoming pages on background threads, so the main thread only has to apply the result.
+ *
+ * Every page runs through decode, dedupe, author line formatting, image prefetch and diff.
+ * Each stage has its own thread and a bounded input queue. A full queue blocks the stage in front
+ * of it, and {@link #submit} refuses pages once the first queue is full. At most one commit is
+ * pending on the main thread at any time. Per stage latencies are reported through {@link Metrics}
+ * under {@code "pipeline.<stage>"}.
+ *
+ * A stage throwing on a page marks it failed and passes it on untouched, so every page submitted
+ * still reaches the {@link Committer} and its request finishes. Failures are reported under
+ * {@code "pipeline.<stage>.failed"}.
+ */
+public class PagePipeline {
+	public static final String METRIC_PREFIX = "pipeline.";
+	public static final String METRIC_FAILED_SUFFIX = ".failed";
+
+	public static interface Committer {
+		/**
+		 * Called on the main thread with a page whose tweets are new and ready to be shown.
+		 */
+		void commitPage(Page page);
+	}
+
+	private static final String TAG = "PagePipeline";
+	private static final int QUEUE_CAPACITY = 4;
+
+	private final Context mContext;
+	private final TweetTextCache mTextCache;
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final Semaphore mPendingCommit = new Semaphore(1);
+	private final ConcurrentHashMap<String, Long> mKnownTimeStamps = new ConcurrentHashMap<String, Long>(); // <= by id
+	private final List<Stage> mStages = new ArrayList<Stage>();
+	private Committer mCommitter;
+
+	public PagePipeline(Context context, TweetTextCache textCache) {
+		mContext = context.getApplicationContext();
+		mTextCache = textCache;
+
+		mStages.add(new Stage("decode") {
+			@Override
+			Page process(Page page) {
+				List<Tweet> tweets = new ArrayList<Tweet>(page.getTweets().size());
+				for (Tweet tweet : page.getTweets()) {
+					if (tweet != null) {
+						tweets.add(tweet);
+					}
+				}
+				Collections.sort(tweets, Timeline.NEWEST_FIRST);
+				page.setTweets(tweets);
+				return page;
+			}
+		});
+		mStages.add(new Stage("dedupe") {
+			@Override
+			Page process(Page page) {
+				if (page.getKind() == Page.KIND_RANGE) {
+					// a range replaces its part of the timeline, so it has to stay complete
+					accept(page.getTweets());
+					return page;
+				}
+				page.setTweets(accept(page.getTweets()));
+				return page;
+			}
+		});
+		mStages.add(new Stage("authorLine") {
+			// only formats the "<time stamp> : <author>" line; the message is still laid out by its
+			// TextView when the row is bound, a TextView can't take a layout prepared elsewhere
+			@Override
+			Page process(Page page) {
+				for (Tweet tweet : page.getTweets()) {
+					mTextCache.getAuthorLine(tweet);
+				}
+				return page;
+			}
+		});
+		mStages.add(new Stage("prefetch") {
+			@Override
+			Page process(Page page) {
+				Picasso picasso = ImageLoader.get(mContext);
+				for (Tweet tweet : page.getTweets()) {
+					if (!TextUtils.isEmpty(tweet.getProfileImageUrl())) { // <= Picasso rejects empty paths
+						picasso.load(tweet.getProfileImageUrl()).fetch();
+					}
+					if (!TextUtils.isEmpty(tweet.getPostImageUrl())) {
+						picasso.load(tweet.getPostImageUrl()).fetch();
+					}
+				}
+				return page;
+			}
+		});
+		mStages.add(new Stage("diff") {
+			@Override
+			Page process(Page page) throws InterruptedException {
+				// pages are already reduced to the tweets missing locally, so the diff against the
+				// adapter is a single block insert at the top or bottom, or one range replacement;
+				// hand it over once the previous commit went through
+				mPendingCommit.acquire();
+				final Page commit = page;
+				mHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							if (mCommitter != null) {
+								mCommitter.commitPage(commit);
+							}
+						} finally {
+							mPendingCommit.release();
+						}
+					}
+				});
+				return null;
+			}
+		});
+
+		for (int i = 0; i < mStages.size(); i++) {
+			mStages.get(i).start(i + 1 < mStages.size() ? mStages.get(i + 1) : null);
+		}
+	}
+
+	public void setCommitter(Committer committer) {
+		mCommitter = committer;
+	}
+
+	/**
+	 * Queues a page for preparation. Never blocks.
+	 *
+	 * @return {@code false} if the pipeline is saturated and the page was dropped
+	 */
+	public boolean submit(Page page) {
+		return mStages.get(0).getQueue().offer(page);
+	}
+
+	/**
+	 * Marks the given tweets as shown, for tweets which reach the adapter without passing the pipeline.
+	 *
+	 * @return the tweets which were not known yet
+	 */
+	public List<Tweet> accept(List<Tweet> tweets) {
+		List<Tweet> fresh = new ArrayList<Tweet>(tweets.size());
+		for (Tweet tweet : tweets) {
+			if (mKnownTimeStamps.putIfAbsent(tweet.getId(), tweet.getTimeStamp()) == null) {
+				fresh.add(tweet);
+			}
+		}
+		return fresh;
+	}
+
+	/**
+	 * Makes the dedupe stage accept these tweets again, e.g. after they were deleted.
+	 */
+	public void forget(Collection<String> ids) {
+		for (String id : ids) {
+			mKnownTimeStamps.remove(id);
+		}
+	}
+
+	public void forget(List<Tweet> tweets) {
+		for (int i = 0; i < tweets.size(); i++) {
+			mKnownTimeStamps.remove(tweets.get(i).getId());
+		}
+	}
+
+	/**
+	 * Forgets the given ids like {@link #forget(Collection)}.
+	 *
+	 * @return time stamps of the tweets among them which were shown, by id
+	 */
+	public Map<String, Long> forgetShown(Collection<String> ids) {
+		Map<String, Long> shown = new HashMap<String, Long>();
+		for (String id : ids) {
+			Long timeStamp = mKnownTimeStamps.remove(id);
+			if (timeStamp != null) {
+				shown.put(id, timeStamp);
+			}
+		}
+		return shown;
+	}
+
+	public void quit() {
+		for (Stage stage : mStages) {
+			stage.quit();
+		}
+	}
+
+	private static abstract class Stage implements Runnable {
+		private final String mName;
+		private final BlockingQueue<Page> mQueue = new ArrayBlockingQueue<Page>(QUEUE_CAPACITY);
+		private Stage mNext;
+		private Thread mThread;
+
+		Stage(String name) {
+			mName = name;
+		}
+
+		/**
+		 * @return the page to pass on, or {@code null} to end it here
+		 */
+		abstract Page process(Page page) throws InterruptedException;
+
+		BlockingQueue<Page> getQueue() {
+			return mQueue;
+		}
+
+		void start(Stage next) {
+			mNext = next;
+			mThread = new Thread(this, "PagePipeline-" + mName);
+			mThread.setDaemon(true);
+			mThread.start();
+		}
+
+		void quit() {
+			mThread.interrupt();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					Page page = mQueue.take();
+					Page result = page;
+					if (!page.isFailed() || mNext == null) { // <= the last stage hands failed pages over too
+						long start = System.nanoTime();
+						try {
+							result = process(page);
+							Metrics.record(METRIC_PREFIX + mName, System.nanoTime() - start);
+						} catch (RuntimeException e) {
+							Log.w(TAG, mName + " failed on a page", e);
+							Metrics.record(METRIC_PREFIX + mName + METRIC_FAILED_SUFFIX, System.nanoTime() - start);
+							page.setFailed();
+						}
+					}
+					if (result != null && mNext != null) {
+						mNext.mQueue.put(result); // <= blocks while the next stage is backed up
+					}
+				}
+			} catch (InterruptedException e) {
+				// quit
+			}
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.example.listdeletetest.utils;
+
+import android.app.ActivityManager;
+import android.content.Context;
+
+import com.squareup.picasso.Picasso;
+
+/**
+ * The app's Picasso instance. Its memory cache is created here, so the {@link MemoryBudget} can
+ * account for and release decoded images.
+ */
+public final class ImageLoader {
+	private static final int DEFAULT_SHARE_OF_MEMORY_CLASS = 7; // <= Picasso's own default, about 15%
+
+	private static Picasso sPicasso;
+	private static ImageMemoryCache sMemoryCache;
+
+	private ImageLoader() {
+	}
+
+	/**
+	 * Creates the instance with a memory cache of at most {@code maxBytes}, unless it exists already.
+	 */
+	public static synchronized void initialize(Context context, int maxBytes) {
+		if (sPicasso == null) {
+			Context appContext = context.getApplicationContext();
+			sMemoryCache = new ImageMemoryCache(maxBytes);
+			sPicasso = new Picasso.Builder(appContext)
+					.memoryCache(sMemoryCache)
+					.build();
+		}
+	}
+
+	public static synchronized Picasso get(Context context) {
+		if (sPicasso == null) {
+			ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+			initialize(context, activityManager.getMemoryClass() * 1024 * 1024 / DEFAULT_SHARE_OF_MEMORY_CLASS);
+		}
+		return sPicasso;
+	}
+
+	public static synchronized ImageMemoryCache getMemoryCache(Context context) {
+		get(context);
+		return sMemoryCache;
+	}
+}
@@ -0,0 +1,89 @@
+package com.example.listdeletetest.utils;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.LruCache;
+
+import com.squareup.picasso.Cache;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Picasso's memory cache of decoded images, sized in bytes. The {@link MemoryBudget} trims it from the
+ * least recently used image on, and is enforced on the main thread whenever images were added.
+ * Safe to use from any thread, Picasso adds images from its dispatcher thread.
+ */
+public class ImageMemoryCache implements Cache, MemoryBudget.Cache {
+	private final LruCache<String, Bitmap> mBitmaps;
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final AtomicBoolean mEnforceScheduled = new AtomicBoolean();
+	private volatile MemoryBudget mMemoryBudget;
+
+	public ImageMemoryCache(int maxBytes) {
+		mBitmaps = new LruCache<String, Bitmap>(maxBytes) {
+			@Override
+			protected int sizeOf(String key, Bitmap value) {
+				return value.getRowBytes() * value.getHeight();
+			}
+		};
+	}
+
+	/**
+	 * The budget is enforced after images were added, {@code null} stops that.
+	 */
+	public void setMemoryBudget(MemoryBudget memoryBudget) {
+		mMemoryBudget = memoryBudget;
+	}
+
+	@Override
+	public Bitmap get(String key) {
+		return mBitmaps.get(key);
+	}
+
+	@Override
+	public void set(String key, Bitmap bitmap) {
+		mBitmaps.put(key, bitmap);
+		if (mMemoryBudget != null && mEnforceScheduled.compareAndSet(false, true)) { // <= one check for a burst of images
+			mHandler.post(mEnforce);
+		}
+	}
+
+	private final Runnable mEnforce = new Runnable() {
+		@Override
+		public void run() {
+			mEnforceScheduled.set(false);
+			MemoryBudget memoryBudget = mMemoryBudget;
+			if (memoryBudget != null) {
+				memoryBudget.enforce();
+			}
+		}
+	};
+
+	@Override
+	public int size() {
+		return mBitmaps.size();
+	}
+
+	@Override
+	public int maxSize() {
+		return mBitmaps.maxSize();
+	}
+
+	@Override
+	public void clear() {
+		mBitmaps.evictAll();
+	}
+
+	@Override
+	public long getSizeBytes() {
+		return mBitmaps.size();
+	}
+
+	@Override
+	public long trim(long bytes) {
+		int before = mBitmaps.size();
+		mBitmaps.trimToSize((int) Math.max(0, before - bytes));
+		return before - mBitmaps.size();
+	}
+}
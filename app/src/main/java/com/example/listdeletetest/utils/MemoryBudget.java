@@ -0,0 +1,160 @@
+package com.example.listdeletetest.utils;
+
+import android.content.ComponentCallbacks2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One byte budget shared by all caches of the app. Every cache registers with a size estimate and
+ * a cost, the relative price of rebuilding its content. When the budget is exceeded the cheapest
+ * caches are trimmed first, and the largest one among equally cheap ones. Trim memory levels lower
+ * the target and clear whole cost classes, from cheapest to most expensive.
+ *
+ * Must be used from the main thread.
+ */
+public class MemoryBudget {
+	public static final int COST_RECOMPUTE = 0; // <= derived from data in memory, e.g. text and measurements
+	public static final int COST_RELOAD = 1; // <= reloaded from disk or network, e.g. decoded images
+	public static final int COST_REFETCH = 2; // <= the timeline itself, needs another round trip
+
+	public static interface Cache {
+		/**
+		 * @return estimated size in bytes, must be cheap to compute
+		 */
+		long getSizeBytes();
+
+		/**
+		 * Releases at least {@code bytes} if possible.
+		 *
+		 * @return number of bytes actually released
+		 */
+		long trim(long bytes);
+	}
+
+	private static class Entry {
+		final String mName;
+		final int mCost;
+		final Cache mCache;
+
+		Entry(String name, int cost, Cache cache) {
+			mName = name;
+			mCost = cost;
+			mCache = cache;
+		}
+	}
+
+	private final Map<String, Entry> mEntries = new LinkedHashMap<String, Entry>();
+	private long mBudgetBytes;
+
+	public MemoryBudget(long budgetBytes) {
+		mBudgetBytes = budgetBytes;
+	}
+
+	/**
+	 * Registers {@code cache} under {@code name}, replacing any cache registered under that name before.
+	 */
+	public void register(String name, int cost, Cache cache) {
+		mEntries.put(name, new Entry(name, cost, cache));
+	}
+
+	public void unregister(String name) {
+		mEntries.remove(name);
+	}
+
+	public long getBudgetBytes() {
+		return mBudgetBytes;
+	}
+
+	public void setBudgetBytes(long budgetBytes) {
+		mBudgetBytes = budgetBytes;
+		enforce();
+	}
+
+	public long getUsageBytes() {
+		long usage = 0;
+		for (Entry entry : mEntries.values()) {
+			usage += entry.mCache.getSizeBytes();
+		}
+		return usage;
+	}
+
+	/**
+	 * @return current size per registered cache, in registration order
+	 */
+	public Map<String, Long> getUsageByCache() {
+		Map<String, Long> usage = new LinkedHashMap<String, Long>();
+		for (Entry entry : mEntries.values()) {
+			usage.put(entry.mName, entry.mCache.getSizeBytes());
+		}
+		return usage;
+	}
+
+	/**
+	 * Trims caches until the total usage fits the budget again.
+	 */
+	public void enforce() {
+		trimTo(mBudgetBytes, -1);
+	}
+
+	public void onTrimMemory(int level) {
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+			trimTo(0, COST_REFETCH); // <= next in line to be killed, release everything
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+			trimTo(mBudgetBytes / 4, COST_RELOAD);
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+			trimTo(mBudgetBytes / 2, COST_RELOAD);
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+			trimTo(mBudgetBytes, COST_RECOMPUTE);
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+			trimTo(mBudgetBytes / 4, COST_RECOMPUTE);
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+			trimTo(mBudgetBytes / 2, -1);
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+			trimTo(mBudgetBytes * 3 / 4, -1);
+		}
+	}
+
+	/**
+	 * Clears every cache with a cost up to {@code clearUpToCost}, then trims the rest in cost order
+	 * until the usage is at most {@code targetBytes}.
+	 */
+	private void trimTo(long targetBytes, int clearUpToCost) {
+		List<Entry> entries = new ArrayList<Entry>(mEntries.values());
+		final Map<Entry, Long> sizes = new LinkedHashMap<Entry, Long>();
+		long usage = 0;
+		for (Entry entry : entries) {
+			long size = entry.mCache.getSizeBytes();
+			sizes.put(entry, size);
+			usage += size;
+		}
+
+		Collections.sort(entries, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry lhs, Entry rhs) {
+				if (lhs.mCost != rhs.mCost) {
+					return lhs.mCost < rhs.mCost ? -1 : 1;
+				}
+				long l = sizes.get(lhs);
+				long r = sizes.get(rhs);
+				return l > r ? -1 : (l == r ? 0 : 1); // <= largest first within the same cost
+			}
+		});
+
+		for (Entry entry : entries) {
+			long size = sizes.get(entry);
+			if (size <= 0) {
+				continue;
+			}
+			if (entry.mCost <= clearUpToCost) {
+				usage -= entry.mCache.trim(size);
+			} else if (usage > targetBytes) {
+				usage -= entry.mCache.trim(Math.min(size, usage - targetBytes));
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package com.example.listdeletetest.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal timing hooks. Code paths report durations under a name, which are aggregated
+ * per name and optionally forwarded to a {@link Listener}.
+ */
+public final class Metrics {
+
+	public static interface Listener {
+		void onMetric(String name, long durationNanos);
+	}
+
+	public static final class Stats {
+		private int mCount;
+		private long mTotalNanos;
+		private long mMaxNanos;
+
+		public int getCount() {
+			return mCount;
+		}
+
+		public long getTotalNanos() {
+			return mTotalNanos;
+		}
+
+		public long getMaxNanos() {
+			return mMaxNanos;
+		}
+
+		public long getAverageNanos() {
+			return mCount == 0 ? 0 : mTotalNanos / mCount;
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + mCount + " avg=" + getAverageNanos() / 1000 + "us max=" + mMaxNanos / 1000 + "us";
+		}
+	}
+
+	private static final Map<String, Stats> sStats = new HashMap<String, Stats>();
+	private static Listener sListener;
+
+	private Metrics() {
+	}
+
+	public static synchronized void setListener(Listener listener) {
+		sListener = listener;
+	}
+
+	public static void record(String name, long durationNanos) {
+		Listener listener;
+		synchronized (Metrics.class) {
+			Stats stats = sStats.get(name);
+			if (stats == null) {
+				stats = new Stats();
+				sStats.put(name, stats);
+			}
+			stats.mCount++;
+			stats.mTotalNanos += durationNanos;
+			stats.mMaxNanos = Math.max(stats.mMaxNanos, durationNanos);
+			listener = sListener;
+		}
+		if (listener != null) {
+			listener.onMetric(name, durationNanos);
+		}
+	}
+
+	/**
+	 * @return a snapshot of the aggregated durations for {@code name}, never {@code null}
+	 */
+	public static synchronized Stats getStats(String name) {
+		Stats snapshot = new Stats();
+		Stats stats = sStats.get(name);
+		if (stats != null) {
+			snapshot.mCount = stats.mCount;
+			snapshot.mTotalNanos = stats.mTotalNanos;
+			snapshot.mMaxNanos = stats.mMaxNanos;
+		}
+		return snapshot;
+	}
+
+	public static synchronized void reset() {
+		sStats.clear();
+	}
+}
@@ -0,0 +1,268 @@
+package com.example.listdeletetest.utils;
+
+import com.example.listdeletetest.model.Gap;
+import com.example.listdeletetest.model.Tweet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+/**
+ * Helpers for tweet lists ordered newest first, i.e. by descending time stamp.
+ * The lists are expected to be random access and may contain {@link Gap}s.
+ */
+public final class Timeline {
+
+	/**
+	 * Orders tweets by descending time stamp, the order of every timeline.
+	 */
+	public static final Comparator<Tweet> NEWEST_FIRST = new Comparator<Tweet>() {
+		@Override
+		public int compare(Tweet lhs, Tweet rhs) {
+			long l = lhs.getTimeStamp();
+			long r = rhs.getTimeStamp();
+			return l > r ? -1 : (l == r ? 0 : 1);
+		}
+	};
+
+	private Timeline() {
+	}
+
+	/**
+	 * @return index of the first tweet with a time stamp lower than {@code timeStamp},
+	 * or {@code tweets.size()} if there is none
+	 */
+	public static int indexOfFirstBefore(List<Tweet> tweets, long timeStamp) {
+		int low = 0;
+		int high = tweets.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (tweets.get(mid).getTimeStamp() >= timeStamp) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return index of the tweet with {@code id}, found by a binary search on its {@code timeStamp},
+	 * or -1 if it is not in the list
+	 */
+	public static int indexOf(List<Tweet> tweets, String id, long timeStamp) {
+		for (int i = indexOfFirstBefore(tweets, timeStamp + 1); i < tweets.size() && tweets.get(i).getTimeStamp() == timeStamp; i++) {
+			if (tweets.get(i).getId().equals(id)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Removes all tweets with {@code fromTimeStamp <= timeStamp < toTimeStamp} as one cut.
+	 *
+	 * @return number of removed tweets
+	 */
+	public static int removeRange(List<Tweet> tweets, long fromTimeStamp, long toTimeStamp) {
+		if (fromTimeStamp >= toTimeStamp) {
+			return 0;
+		}
+		int start = indexOfFirstBefore(tweets, toTimeStamp);
+		int end = indexOfFirstBefore(tweets, fromTimeStamp);
+		int removed = end - start;
+		if (removed > 0) {
+			tweets.subList(start, end).clear();
+		}
+		return removed;
+	}
+
+	/**
+	 * @return the ids of {@code tweets}, in order
+	 */
+	public static List<String> getIds(List<Tweet> tweets) {
+		List<String> ids = new ArrayList<String>(tweets.size());
+		for (int i = 0; i < tweets.size(); i++) {
+			ids.add(tweets.get(i).getId());
+		}
+		return ids;
+	}
+
+	/**
+	 * Removes all tweets whose id is contained in {@code ids}, compacting the list in a single pass.
+	 *
+	 * @return number of removed tweets
+	 */
+	public static int removeIds(List<Tweet> tweets, Collection<String> ids) {
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		int write = 0;
+		final int size = tweets.size();
+		for (int read = 0; read < size; read++) {
+			Tweet tweet = tweets.get(read);
+			if (!ids.contains(tweet.getId())) {
+				if (write != read) {
+					tweets.set(write, tweet);
+				}
+				write++;
+			}
+		}
+		int removed = size - write;
+		if (removed > 0) {
+			tweets.subList(write, size).clear();
+		}
+		return removed;
+	}
+
+	/**
+	 * Removes the tweets with the ids in {@code timeStamps}, each found by a binary search on its time stamp.
+	 * Ids which are not in the list are ignored. The list is compacted in a single pass from the first
+	 * removed position on, so k removals cost O(k log n) plus one move of the rows below.
+	 *
+	 * @return the positions the removed tweets had, ascending
+	 */
+	public static int[] removeByTimeStamp(List<Tweet> tweets, Map<String, Long> timeStamps, List<Tweet> removed) {
+		int[] positions = new int[timeStamps.size()];
+		int count = 0;
+		for (Map.Entry<String, Long> entry : timeStamps.entrySet()) {
+			int index = indexOf(tweets, entry.getKey(), entry.getValue());
+			if (index >= 0) {
+				positions[count++] = index;
+			}
+		}
+		if (count == 0) {
+			return new int[0];
+		}
+		positions = Arrays.copyOf(positions, count);
+		if (count == 1) {
+			removed.add(tweets.remove(positions[0])); // <= the same pass, done by the list as one block move
+			return positions;
+		}
+		Arrays.sort(positions);
+
+		int write = positions[0];
+		int next = 0;
+		final int size = tweets.size();
+		for (int read = positions[0]; read < size; read++) {
+			Tweet tweet = tweets.get(read);
+			if (next < count && read == positions[next]) {
+				removed.add(tweet);
+				next++;
+			} else {
+				tweets.set(write++, tweet);
+			}
+		}
+		tweets.subList(write, size).clear();
+		return positions;
+	}
+
+	/**
+	 * @return {@code true} if the tweets with {@code fromTimeStamp <= timeStamp < toTimeStamp} are
+	 * exactly the ones in {@code ids}, in which case they can be removed with {@link #removeRange}
+	 */
+	public static boolean isRange(List<Tweet> tweets, long fromTimeStamp, long toTimeStamp, Collection<String> ids) {
+		int start = indexOfFirstBefore(tweets, toTimeStamp);
+		int end = indexOfFirstBefore(tweets, fromTimeStamp);
+		if (end - start != ids.size()) {
+			return false;
+		}
+		ListIterator<Tweet> iterator = tweets.listIterator(start);
+		while (iterator.nextIndex() < end) {
+			if (!ids.contains(iterator.next().getId())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return index of the first real tweet with a time stamp of at most {@code timeStamp}, if that part of
+	 * the timeline is loaded, or -1 if {@code timeStamp} falls into a gap or outside of the loaded tweets
+	 */
+	public static int indexOfLoaded(List<Tweet> tweets, long timeStamp) {
+		int index = timeStamp == Long.MAX_VALUE ? 0 : indexOfFirstBefore(tweets, timeStamp + 1);
+		if (index >= tweets.size() || tweets.get(index) instanceof Gap) {
+			return -1;
+		}
+		if (tweets.get(index).getTimeStamp() == timeStamp) {
+			return index;
+		}
+		if (index == 0 || tweets.get(index - 1) instanceof Gap) {
+			return -1; // <= newer than everything loaded, or inside a gap
+		}
+		return index;
+	}
+
+	/**
+	 * Merges {@code run} into the timeline. The run must hold every tweet the server has with
+	 * {@code oldest <= timeStamp <= newest}, use {@link Long#MIN_VALUE} / {@link Long#MAX_VALUE} for
+	 * open ends. Loaded tweets and gaps inside that range are replaced by the run, gaps reaching out of
+	 * it are cut back, and new gaps are inserted where the run does not connect to loaded tweets.
+	 *
+	 * @return the replaced elements
+	 */
+	public static List<Tweet> mergeRun(List<Tweet> timeline, List<Tweet> run, long newest, long oldest) {
+		final int size = timeline.size();
+		int start = newest == Long.MAX_VALUE ? 0 : indexOfFirstBefore(timeline, newest + 1);
+		int end = indexOfFirstBefore(timeline, oldest);
+
+		Gap above = null;
+		Gap below = null;
+
+		// gaps overlapping the covered range are cut back to the parts outside of it
+		for (int i = start; i < end; i++) {
+			if (timeline.get(i) instanceof Gap) {
+				Gap gap = (Gap) timeline.get(i);
+				if (Gap.isNeeded(gap.getNewerTimeStamp(), newest)) {
+					above = new Gap(gap.getNewerTimeStamp(), newest);
+				}
+			}
+		}
+		if (end < size && timeline.get(end) instanceof Gap) {
+			Gap gap = (Gap) timeline.get(end);
+			if (gap.getNewerTimeStamp() > oldest) {
+				if (Gap.isNeeded(gap.getNewerTimeStamp(), newest)) {
+					above = new Gap(gap.getNewerTimeStamp(), newest);
+				}
+				if (Gap.isNeeded(oldest, gap.getOlderTimeStamp())) {
+					below = new Gap(oldest, gap.getOlderTimeStamp());
+				}
+				end++;
+			}
+		}
+
+		// the run lies beyond the loaded tweets, nothing is known between them
+		if (start == size && start > 0) {
+			long loadedOldest = timeline.get(size - 1).getTimeStamp();
+			if (Gap.isNeeded(loadedOldest, newest)) {
+				above = new Gap(loadedOldest, newest);
+			}
+		}
+		if (end == 0 && size > 0) {
+			long loadedNewest = timeline.get(0).getTimeStamp();
+			if (Gap.isNeeded(oldest, loadedNewest)) {
+				below = new Gap(oldest, loadedNewest);
+			}
+		}
+
+		List<Tweet> replacement = new ArrayList<Tweet>(run.size() + 2);
+		if (above != null) {
+			replacement.add(above);
+		}
+		replacement.addAll(run);
+		if (below != null) {
+			replacement.add(below);
+		}
+
+		List<Tweet> region = timeline.subList(start, end);
+		List<Tweet> replaced = new ArrayList<Tweet>(region);
+		region.clear();
+		timeline.addAll(start, replacement);
+		return replaced;
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.listdeletetest.utils;
+
+import com.example.listdeletetest.model.Tweet;
+
+import java.util.List;
+
+/**
+ * Sparse index over a timeline ordered newest first: every {@code stride}-th row starts a section,
+ * labelled with the time stamp of that row. Sections map to positions and back in O(1), and rebuilding
+ * only touches the sampled rows.
+ */
+public class TimestampIndex {
+	private final int mStride;
+	private long[] mTimeStamps = new long[0];
+	private String[] mLabels = new String[0];
+	private int mRowCount;
+
+	public TimestampIndex(int stride) {
+		mStride = Math.max(1, stride);
+	}
+
+	public void rebuild(List<Tweet> tweets) {
+		mRowCount = tweets.size();
+		int count = (mRowCount + mStride - 1) / mStride;
+		mTimeStamps = new long[count];
+		mLabels = new String[count];
+		for (int section = 0; section < count; section++) {
+			mTimeStamps[section] = tweets.get(section * mStride).getTimeStamp();
+			mLabels[section] = String.valueOf(mTimeStamps[section]);
+		}
+	}
+
+	public int getSectionCount() {
+		return mTimeStamps.length;
+	}
+
+	/**
+	 * @return the section labels, shared, must not be modified
+	 */
+	public String[] getLabels() {
+		return mLabels;
+	}
+
+	public int getPositionForSection(int section) {
+		if (mTimeStamps.length == 0) {
+			return 0;
+		}
+		return Math.max(0, Math.min(section, mTimeStamps.length - 1)) * mStride;
+	}
+
+	public int getSectionForPosition(int position) {
+		if (mTimeStamps.length == 0) {
+			return 0;
+		}
+		return Math.max(0, Math.min(position / mStride, mTimeStamps.length - 1));
+	}
+}
@@ -8,29 +8,50 @@ import android.util.Log;
 import com.example.listdeletetest.R;
 import com.example.listdeletetest.model.Tweet;
 import com.example.listdeletetest.utils.RawResource;
+import com.example.listdeletetest.utils.Timeline;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Random;
+import java.util.Set;
 
 public class FauxWebService implements WebService {
 	private Context mContext;
 
-	private List<Tweet> mTweets;
+	private List<Tweet> mTweets; // <= sorted by descending time stamp
 
 	private Handler mHandler = new Handler(Looper.getMainLooper());
 
-	private Delegate mDelegate;
+	private volatile Delegate mDelegate;
+
+	private long mLatency = 1000;
+
+	private static final long STREAM_TICK_MS = 20;
+
+	private volatile int mInsertsPerSecond = 1;
+	private volatile int mDeletesPerSecond = 0;
+	private Thread mStreamThread;
+	private int mLiveCount;
+	private final Random mRandom = new Random();
 
 	public FauxWebService(Context context) {
 		mContext = context;
 		loadFromResource(R.raw.tweets2);
 	}
 
+	/**
+	 * Serves the given tweets instead of the bundled resource, e.g. for benchmarks.
+	 * The list must be ordered by descending time stamp.
+	 */
+	public FauxWebService(List<Tweet> tweets) {
+		mTweets = new ArrayList<Tweet>(tweets);
+	}
+
 	private void loadFromResource(int resID) {
 		if (mTweets != null) {
 			return;
@@ -61,8 +82,110 @@ public class FauxWebService implements WebService {
 
 	@Override
 	public void delete(List<Tweet> tweets) {
+		Collection<String> ids = new HashSet<String>(tweets.size());
+		for (Tweet tweet : tweets) {
+			ids.add(tweet.getId());
+		}
+		deleteIds(ids);
+	}
+
+	@Override
+	public void deleteIds(Collection<String> ids) {
+		synchronized (this) {
+			Timeline.removeIds(mTweets, ids instanceof Set ? ids : new HashSet<String>(ids));
+		}
+	}
+
+	@Override
+	public void deleteRange(long fromTimeStamp, long toTimeStamp) {
+		synchronized (this) {
+			Timeline.removeRange(mTweets, fromTimeStamp, toTimeStamp);
+		}
+	}
+
+	public int size() {
 		synchronized (this) {
-			mTweets.removeAll(tweets);
+			return mTweets.size();
+		}
+	}
+
+	/**
+	 * Sets the simulated round trip time of the fetch calls.
+	 */
+	public void setLatency(long latency) {
+		mLatency = latency;
+	}
+
+	/**
+	 * Sets how many tweets the subscription stream creates and deletes per second.
+	 */
+	public void setStreamRate(int insertsPerSecond, int deletesPerSecond) {
+		mInsertsPerSecond = insertsPerSecond;
+		mDeletesPerSecond = deletesPerSecond;
+	}
+
+	@Override
+	public synchronized void subscribe() {
+		if (mStreamThread != null) {
+			return;
+		}
+		mStreamThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runStream();
+			}
+		}, "FauxWebService-stream");
+		mStreamThread.setDaemon(true);
+		mStreamThread.start();
+	}
+
+	@Override
+	public synchronized void unsubscribe() {
+		if (mStreamThread != null) {
+			mStreamThread.interrupt();
+			mStreamThread = null;
+		}
+	}
+
+	private void runStream() {
+		double insertCredit = 0;
+		double deleteCredit = 0;
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				Thread.sleep(STREAM_TICK_MS);
+				insertCredit += mInsertsPerSecond * STREAM_TICK_MS / 1000d;
+				deleteCredit += mDeletesPerSecond * STREAM_TICK_MS / 1000d;
+
+				List<Tweet> inserted = new ArrayList<Tweet>();
+				List<String> deleted = new ArrayList<String>();
+				synchronized (this) {
+					if (mTweets.isEmpty()) {
+						continue;
+					}
+					long newest = mTweets.get(0).getTimeStamp();
+					for (; insertCredit >= 1; insertCredit--) {
+						Tweet template = mTweets.get(mRandom.nextInt(mTweets.size())); // <= recycle existing content
+						inserted.add(0, new Tweet("live-" + (++mLiveCount), template.getAuthorName(), template.getMessage(),
+								template.getProfileImageUrl(), template.getPostImageUrl(), ++newest));
+					}
+					mTweets.addAll(0, inserted);
+					for (; deleteCredit >= 1 && mTweets.size() > 0; deleteCredit--) {
+						deleted.add(mTweets.remove(mRandom.nextInt(mTweets.size())).getId());
+					}
+				}
+
+				Delegate delegate = mDelegate;
+				if (delegate != null) {
+					if (!inserted.isEmpty()) {
+						delegate.handleStreamInserted(inserted);
+					}
+					if (!deleted.isEmpty()) {
+						delegate.handleStreamDeleted(deleted);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			// unsubscribed
 		}
 	}
 
@@ -72,22 +195,15 @@ public class FauxWebService implements WebService {
 		mHandler.postDelayed(new Runnable() {
 			@Override
 			public void run() {
-				synchronized (this) {
-					List<Tweet> result = new ArrayList<Tweet>();
+				List<Tweet> result;
+				synchronized (FauxWebService.this) {
 					Log.d("XXX", "fetchBefore lim: " + limit);
-					Iterator<Tweet> iterator = mTweets.iterator();
-					while(iterator.hasNext() && result.size() < limit) {
-						Tweet item = iterator.next();
-						if(item.getTimeStamp() < timeStamp) {
-							Log.d("XXX", "adding item with timestamp: " + item.getTimeStamp());
-							result.add(item);
-						}
-					}
-
-					mDelegate.handleResultNext(result);
+					int start = Timeline.indexOfFirstBefore(mTweets, timeStamp);
+					result = new ArrayList<Tweet>(mTweets.subList(start, Math.min(start + limit, mTweets.size())));
 				}
+				mDelegate.handleResultNext(result);
 			}
-		}, 1000);
+		}, mLatency);
 	}
 
 	@Override
@@ -96,26 +212,35 @@ public class FauxWebService implements WebService {
 		mHandler.postDelayed(new Runnable() {
 			@Override
 			public void run() {
-				synchronized (this) {
-					List<Tweet> result = new ArrayList<Tweet>();
-
+				List<Tweet> result;
+				synchronized (FauxWebService.this) {
 					int lim = (int) Math.floor(Math.random() * (limit))+1; // <= randomize count of new items a bit
 					Log.d("XXX", "fetchSince lim: " + lim);
-					ListIterator<Tweet> iterator = mTweets.listIterator(mTweets.size());
-					while(iterator.hasPrevious() && result.size() < lim) {
-						Tweet item = iterator.previous();
-						if(item.getTimeStamp() > timeStamp) {
-							Log.d("XXX", "adding item with timestamp: " + item.getTimeStamp());
-							result.add(item);
-						}
-					}
-
-					mDelegate.handleResultNewest(result);
+					int end = Timeline.indexOfFirstBefore(mTweets, timeStamp + 1); // <= the oldest tweets newer than timeStamp end here
+					result = new ArrayList<Tweet>(mTweets.subList(Math.max(0, end - lim), end));
 				}
+				mDelegate.handleResultNewest(result);
 			}
-		}, 1000);
+		}, mLatency);
 
 	}
 
+	@Override
+	public void fetchAround(final long timeStamp, final int limit) {
+		mHandler.postDelayed(new Runnable() {
+			@Override
+			public void run() {
+				List<Tweet> result;
+				synchronized (FauxWebService.this) {
+					int middle = timeStamp == Long.MAX_VALUE ? 0 : Timeline.indexOfFirstBefore(mTweets, timeStamp + 1);
+					int start = Math.max(0, middle - limit / 2);
+					int end = Math.min(mTweets.size(), start + limit);
+					result = new ArrayList<Tweet>(mTweets.subList(start, end));
+				}
+				mDelegate.handleResultAround(timeStamp, result);
+			}
+		}, mLatency);
+	}
+
 
 }
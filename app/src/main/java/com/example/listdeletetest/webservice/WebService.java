@@ -2,6 +2,7 @@ package com.example.listdeletetest.webservice;
 
 import com.example.listdeletetest.model.Tweet;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface WebService {
@@ -9,14 +10,52 @@ public interface WebService {
 	static interface Delegate {
 		void handleResultNext(List<Tweet> tweets);
 		void handleResultNewest(List<Tweet> tweets);
+
+		/**
+		 * Result of {@link #fetchAround}, ordered by descending time stamp.
+		 */
+		void handleResultAround(long timeStamp, List<Tweet> tweets);
+
+		/**
+		 * Pushed while subscribed, may be called from any thread.
+		 */
+		void handleStreamInserted(List<Tweet> tweets);
+
+		/**
+		 * Pushed while subscribed, may be called from any thread.
+		 */
+		void handleStreamDeleted(Collection<String> ids);
 	}
 
 	public void setDelegate(Delegate delegate);
 
 	void delete(List<Tweet> tweets);
 
+	/**
+	 * Deletes the tweets with the given ids.
+	 */
+	void deleteIds(Collection<String> ids);
+
+	/**
+	 * Deletes all tweets with {@code fromTimeStamp <= timeStamp < toTimeStamp}.
+	 */
+	void deleteRange(long fromTimeStamp, long toTimeStamp);
+
 	void fetchBefore(long timeStamp, int limit);
 
 	void fetchSince(long timeStamp, int limit);
 
+	/**
+	 * Fetches a page centred on {@code timeStamp} in one round trip: up to {@code limit / 2} tweets
+	 * newer than it, the rest of the limit with a time stamp of at most {@code timeStamp}.
+	 */
+	void fetchAround(long timeStamp, int limit);
+
+	/**
+	 * Starts pushing new and deleted tweets to the delegate as they happen.
+	 */
+	void subscribe();
+
+	void unsubscribe();
+
 }
@@ -0,0 +1,84 @@
+package com.example.listdeletetest.widget;
+
+/**
+ * Values of a fixed number of slots with prefix sums (a Fenwick tree), so offsets and slots map onto
+ * each other in O(log n) while single values can still be updated in O(log n). Holds row heights,
+ * and with values of 0 and 1 it counts the live rows in front of a slot.
+ */
+class HeightIndex {
+	private final int[] mHeights;
+	private final int[] mTree;
+	private final int mHighestBit;
+
+	HeightIndex(int capacity) {
+		this(new int[capacity], capacity);
+	}
+
+	HeightIndex(int[] heights, int size) {
+		mHeights = new int[size];
+		mTree = new int[size + 1];
+		System.arraycopy(heights, 0, mHeights, 0, size);
+
+		// linear build, every node pushes its sum to its parent
+		for (int i = 1; i <= size; i++) {
+			mTree[i] += mHeights[i - 1];
+			int parent = i + (i & -i);
+			if (parent <= size) {
+				mTree[parent] += mTree[i];
+			}
+		}
+		mHighestBit = Integer.highestOneBit(Math.max(1, size));
+	}
+
+	int size() {
+		return mHeights.length;
+	}
+
+	int get(int index) {
+		return mHeights[index];
+	}
+
+	void set(int index, int height) {
+		int delta = height - mHeights[index];
+		if (delta == 0) {
+			return;
+		}
+		mHeights[index] = height;
+		for (int i = index + 1; i < mTree.length; i += i & -i) {
+			mTree[i] += delta;
+		}
+	}
+
+	/**
+	 * @return sum of the heights of the first {@code count} rows
+	 */
+	int prefix(int count) {
+		int sum = 0;
+		for (int i = count; i > 0; i -= i & -i) {
+			sum += mTree[i];
+		}
+		return sum;
+	}
+
+	int total() {
+		return prefix(mHeights.length);
+	}
+
+	/**
+	 * @return the largest count whose prefix sum is at most {@code offset}; with non-negative values
+	 * that is the index of the slot covering {@code offset}, or {@link #size()} past the end
+	 */
+	int search(int offset) {
+		// descend the tree to the largest count whose prefix sum is <= offset
+		int count = 0;
+		int remaining = offset;
+		for (int bit = mHighestBit; bit > 0; bit >>= 1) {
+			int next = count + bit;
+			if (next < mTree.length && mTree[next] <= remaining) {
+				count = next;
+				remaining -= mTree[next];
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,101 @@
+package com.example.listdeletetest.widget;
+
+import android.util.SparseArray;
+
+import com.example.listdeletetest.utils.MemoryBudget;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measured row heights keyed by tweet id and row width. Widths only take a handful of values
+ * (portrait, landscape, column widths), so the cache keeps one map per width, each in access order.
+ * Trimming drops the heights of other widths first, then the least recently used ones.
+ */
+public class RowHeightCache implements MemoryBudget.Cache {
+	private static final int ENTRY_BYTES = 48; // <= map node plus boxed height
+
+	private final SparseArray<Map<String, Integer>> mHeightsByWidth = new SparseArray<Map<String, Integer>>();
+	private int mSize;
+	private int mLastWidth; // <= the width rows are laid out at now, as last asked for
+
+	/**
+	 * @return the measured height, or -1 if the row was not measured at this width yet
+	 */
+	public int get(String id, int width) {
+		mLastWidth = width;
+		Map<String, Integer> heights = mHeightsByWidth.get(width);
+		if (heights == null) {
+			return -1;
+		}
+		Integer height = heights.get(id);
+		return height == null ? -1 : height;
+	}
+
+	public void put(String id, int width, int height) {
+		Map<String, Integer> heights = mHeightsByWidth.get(width);
+		if (heights == null) {
+			heights = new LinkedHashMap<String, Integer>(16, 0.75f, true);
+			mHeightsByWidth.put(width, heights);
+		}
+		if (heights.put(id, height) == null) {
+			mSize++;
+		}
+	}
+
+	public void remove(String id) {
+		for (int i = 0; i < mHeightsByWidth.size(); i++) {
+			if (mHeightsByWidth.valueAt(i).remove(id) != null) {
+				mSize--;
+			}
+		}
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public void clear() {
+		mHeightsByWidth.clear();
+		mSize = 0;
+	}
+
+	@Override
+	public long getSizeBytes() {
+		return (long) mSize * ENTRY_BYTES;
+	}
+
+	@Override
+	public long trim(long bytes) {
+		long freed = 0;
+		for (int i = mHeightsByWidth.size() - 1; i >= 0 && freed < bytes; i--) {
+			if (mHeightsByWidth.keyAt(i) != mLastWidth) {
+				freed += evict(mHeightsByWidth.valueAt(i), bytes - freed);
+				if (mHeightsByWidth.valueAt(i).isEmpty()) {
+					mHeightsByWidth.removeAt(i);
+				}
+			}
+		}
+		Map<String, Integer> current = mHeightsByWidth.get(mLastWidth);
+		if (current != null && freed < bytes) {
+			freed += evict(current, bytes - freed);
+		}
+		return freed;
+	}
+
+	/**
+	 * Drops the least recently used heights of {@code heights} until {@code bytes} are freed.
+	 */
+	private long evict(Map<String, Integer> heights, long bytes) {
+		long freed = 0;
+		Iterator<Integer> iterator = heights.values().iterator();
+		while (freed < bytes && iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+			mSize--;
+			freed += ENTRY_BYTES;
+		}
+		return freed;
+	}
+}
@@ -0,0 +1,279 @@
+package com.example.listdeletetest.widget;
+
+import com.example.listdeletetest.model.Tweet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Variable height layout for one or more columns. Each row is placed into the currently shortest
+ * column (a single column is the plain list, more columns give a staggered grid) and keeps that
+ * column. Heights come from the {@link RowHeightCache} if the row was measured at the current column
+ * width before, otherwise from the {@link HeightEstimator}. Every column keeps prefix sums of its
+ * heights, so position to offset and offset to position both cost O(log n).
+ *
+ * Rows are kept in slots with free room in front of the first and behind the last row. Prepends and
+ * appends take free slots and removals leave dead ones behind, so all three cost O(log n) per row.
+ * Everything is laid out again only when width or column count change, or once the free or dead
+ * slots run out.
+ */
+public class RowLayoutEngine implements TweetItemView.OnRowMeasuredListener {
+
+	public static interface HeightEstimator {
+		int estimateHeight(Tweet tweet, int width);
+	}
+
+	private static final int MIN_FREE_SLOTS = 16;
+
+	private final RowHeightCache mCache;
+	private final HeightEstimator mEstimator;
+	private int mColumnCount = 1;
+	private int mWidth;
+
+	private Tweet[] mSlotTweets = new Tweet[0]; // <= null for free and dead slots
+	private int[] mSlotColumns = new int[0];
+	private int mHead; // <= first used slot
+	private int mTail; // <= behind the last used slot
+	private int mCount;
+	private Map<String, Integer> mSlots = new HashMap<String, Integer>();
+	private HeightIndex mLive = new HeightIndex(0); // <= 1 for every slot holding a row
+	private HeightIndex[] mColumns = new HeightIndex[0]; // <= per column, heights of its own slots
+
+	public RowLayoutEngine(RowHeightCache cache, HeightEstimator estimator) {
+		mCache = cache;
+		mEstimator = estimator;
+	}
+
+	public void setColumnCount(int columnCount) {
+		if (columnCount != mColumnCount) {
+			mColumnCount = Math.max(1, columnCount);
+			layout(getItems());
+		}
+	}
+
+	public int getColumnCount() {
+		return mColumnCount;
+	}
+
+	/**
+	 * Sets the total width available to all columns.
+	 */
+	public void setWidth(int width) {
+		if (width != mWidth) {
+			mWidth = width;
+			layout(getItems());
+		}
+	}
+
+	public int getColumnWidth() {
+		return mWidth / mColumnCount;
+	}
+
+	/**
+	 * Lays out {@code tweets} from scratch, later changes go through {@link #prepend}, {@link #append}
+	 * and {@link #remove}.
+	 */
+	public void setItems(List<Tweet> tweets) {
+		layout(tweets);
+	}
+
+	/**
+	 * Adds rows in front of the first one, {@code tweets} in list order.
+	 */
+	public void prepend(List<Tweet> tweets) {
+		if (tweets.size() > mHead) {
+			List<Tweet> items = new ArrayList<Tweet>(tweets);
+			items.addAll(getItems());
+			layout(items);
+			return;
+		}
+		for (int i = tweets.size() - 1; i >= 0; i--) {
+			place(tweets.get(i), --mHead);
+		}
+	}
+
+	/**
+	 * Adds rows behind the last one.
+	 */
+	public void append(List<Tweet> tweets) {
+		if (mTail + tweets.size() > mSlotTweets.length) {
+			List<Tweet> items = getItems();
+			items.addAll(tweets);
+			layout(items);
+			return;
+		}
+		for (Tweet tweet : tweets) {
+			place(tweet, mTail++);
+		}
+	}
+
+	/**
+	 * Removes the rows of the tweets with the given ids, ids without a row are ignored.
+	 */
+	public void remove(Collection<String> ids) {
+		for (String id : ids) {
+			Integer slot = mSlots.remove(id);
+			if (slot != null) {
+				mColumns[mSlotColumns[slot]].set(slot, 0);
+				mLive.set(slot, 0);
+				mSlotTweets[slot] = null;
+				mCount--;
+			}
+		}
+		if (mTail - mHead - mCount > mCount + MIN_FREE_SLOTS) {
+			layout(getItems()); // <= mostly dead slots, compact
+		}
+	}
+
+	/**
+	 * @return the rows in order
+	 */
+	public List<Tweet> getItems() {
+		List<Tweet> items = new ArrayList<Tweet>(mCount);
+		for (int slot = mHead; slot < mTail; slot++) {
+			if (mSlotTweets[slot] != null) {
+				items.add(mSlotTweets[slot]);
+			}
+		}
+		return items;
+	}
+
+	private void layout(List<Tweet> tweets) {
+		final int count = tweets.size();
+		final int capacity = 2 * count + 2 * MIN_FREE_SLOTS; // <= room for as many rows again, half in front
+		final int columnWidth = getColumnWidth();
+
+		mSlotTweets = new Tweet[capacity];
+		mSlotColumns = new int[capacity];
+		mHead = (capacity - count) / 2;
+		mTail = mHead + count;
+		mCount = count;
+		mSlots = new HashMap<String, Integer>(count * 2);
+		int[] live = new int[capacity];
+		int[][] heights = new int[mColumnCount][capacity];
+		long[] totals = new long[mColumnCount];
+
+		for (int i = 0; i < count; i++) {
+			Tweet tweet = tweets.get(i);
+			int slot = mHead + i;
+			int height = getHeight(tweet, columnWidth);
+
+			int column = 0;
+			for (int c = 1; c < mColumnCount; c++) {
+				if (totals[c] < totals[column]) {
+					column = c;
+				}
+			}
+			mSlotTweets[slot] = tweet;
+			mSlotColumns[slot] = column;
+			mSlots.put(tweet.getId(), slot);
+			live[slot] = 1;
+			heights[column][slot] = height;
+			totals[column] += height;
+		}
+
+		mLive = new HeightIndex(live, capacity);
+		mColumns = new HeightIndex[mColumnCount];
+		for (int c = 0; c < mColumnCount; c++) {
+			mColumns[c] = new HeightIndex(heights[c], capacity);
+		}
+	}
+
+	private void place(Tweet tweet, int slot) {
+		int column = 0;
+		for (int c = 1; c < mColumnCount; c++) {
+			if (mColumns[c].total() < mColumns[column].total()) {
+				column = c;
+			}
+		}
+		mSlotTweets[slot] = tweet;
+		mSlotColumns[slot] = column;
+		mSlots.put(tweet.getId(), slot);
+		mLive.set(slot, 1);
+		mColumns[column].set(slot, getHeight(tweet, getColumnWidth()));
+		mCount++;
+	}
+
+	private int getHeight(Tweet tweet, int columnWidth) {
+		int height = mCache.get(tweet.getId(), columnWidth);
+		return height < 0 ? mEstimator.estimateHeight(tweet, columnWidth) : height;
+	}
+
+	private int getSlot(int position) {
+		return mLive.search(position); // <= the slot with exactly position live slots in front of it
+	}
+
+	@Override
+	public void onRowMeasured(Tweet tweet, int width, int height) {
+		mCache.put(tweet.getId(), width, height);
+		if (width != getColumnWidth()) {
+			return;
+		}
+		Integer slot = mSlots.get(tweet.getId());
+		if (slot != null) {
+			mColumns[mSlotColumns[slot]].set(slot, height);
+		}
+	}
+
+	public int getCount() {
+		return mCount;
+	}
+
+	public int getColumn(int position) {
+		return mSlotColumns[getSlot(position)];
+	}
+
+	public int getHeight(int position) {
+		int slot = getSlot(position);
+		return mColumns[mSlotColumns[slot]].get(slot);
+	}
+
+	/**
+	 * @return top of the row at {@code position} within its column
+	 */
+	public int getOffsetForPosition(int position) {
+		int slot = getSlot(position);
+		return mColumns[mSlotColumns[slot]].prefix(slot);
+	}
+
+	/**
+	 * @return position of the row covering {@code offset} in {@code column}, or -1 if the column is empty
+	 */
+	public int getPositionForOffset(int column, int offset) {
+		HeightIndex heights = mColumns[column];
+		int total = heights.total();
+		if (total <= 0) {
+			return -1;
+		}
+		int slot = heights.search(Math.max(0, Math.min(offset, total - 1)));
+		return mLive.prefix(slot);
+	}
+
+	/**
+	 * @return the lowest position covering {@code offset} in any column, or -1 if there are no rows
+	 */
+	public int getPositionForOffset(int offset) {
+		int result = -1;
+		for (int c = 0; c < mColumns.length; c++) {
+			int position = getPositionForOffset(c, offset);
+			if (position >= 0 && (result < 0 || position < result)) {
+				result = position;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return height of the tallest column
+	 */
+	public int getTotalHeight() {
+		int total = 0;
+		for (HeightIndex column : mColumns) {
+			total = Math.max(total, column.total());
+		}
+		return total;
+	}
+}
@@ -0,0 +1,84 @@
+package com.example.listdeletetest.widget;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+import android.widget.ListView;
+
+/**
+ * ListView which takes its scroll offset and range from a {@link RowLayoutEngine} instead of
+ * extrapolating from the rows currently on screen, so scroll bar and fast scroll thumb stay put
+ * when rows of very different heights scroll in.
+ */
+public class TimelineListView extends ListView {
+	private RowLayoutEngine mLayoutEngine;
+
+	public TimelineListView(Context context) {
+		super(context);
+	}
+
+	public TimelineListView(Context context, AttributeSet attrs) {
+		super(context, attrs);
+	}
+
+	public TimelineListView(Context context, AttributeSet attrs, int defStyle) {
+		super(context, attrs, defStyle);
+	}
+
+	public void setLayoutEngine(RowLayoutEngine layoutEngine) {
+		mLayoutEngine = layoutEngine;
+		if (mLayoutEngine != null && getWidth() > 0) {
+			mLayoutEngine.setWidth(getWidth() - getPaddingLeft() - getPaddingRight());
+		}
+	}
+
+	/**
+	 * Scrolls to an absolute offset within the whole timeline.
+	 */
+	public void setSelectionFromOffset(int offset) {
+		if (mLayoutEngine == null || mLayoutEngine.getCount() == 0) {
+			return;
+		}
+		int position = mLayoutEngine.getPositionForOffset(offset);
+		setSelectionFromTop(position, mLayoutEngine.getOffsetForPosition(position) - offset);
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		if (mLayoutEngine != null) {
+			mLayoutEngine.setWidth(w - getPaddingLeft() - getPaddingRight());
+		}
+	}
+
+	@Override
+	protected int computeVerticalScrollOffset() {
+		if (!hasEngineLayout()) {
+			return super.computeVerticalScrollOffset();
+		}
+		View first = getChildAt(0);
+		return Math.max(0, mLayoutEngine.getOffsetForPosition(getFirstVisiblePosition()) - first.getTop() + getPaddingTop());
+	}
+
+	@Override
+	protected int computeVerticalScrollRange() {
+		if (!hasEngineLayout()) {
+			return super.computeVerticalScrollRange();
+		}
+		return mLayoutEngine.getTotalHeight() + getPaddingTop() + getPaddingBottom();
+	}
+
+	@Override
+	protected int computeVerticalScrollExtent() {
+		if (!hasEngineLayout()) {
+			return super.computeVerticalScrollExtent();
+		}
+		return getHeight();
+	}
+
+	private boolean hasEngineLayout() {
+		return mLayoutEngine != null && getChildCount() > 0
+				&& mLayoutEngine.getCount() == getCount() // <= engine lags behind until the adapter notified
+				&& getFirstVisiblePosition() < mLayoutEngine.getCount();
+	}
+}
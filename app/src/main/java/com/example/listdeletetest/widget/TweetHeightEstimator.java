@@ -0,0 +1,70 @@
+package com.example.listdeletetest.widget;
+
+import android.content.res.Resources;
+import android.text.TextUtils;
+
+import com.example.listdeletetest.R;
+import com.example.listdeletetest.model.Gap;
+import com.example.listdeletetest.model.Tweet;
+
+/**
+ * Estimates the height of a {@link TweetItemView} from its content, without inflating or measuring
+ * anything: message length against the available text width, plus the post image if there is one.
+ */
+public class TweetHeightEstimator implements RowLayoutEngine.HeightEstimator {
+	private static final float LINE_SPACING = 1.2f;
+	private static final float AVERAGE_CHAR_WIDTH = 0.5f; // <= relative to the text size
+
+	private final int mPadding;
+	private final int mProfileImageSize;
+	private final int mContentMargin;
+	private final int mPostImageHeight;
+	private final int mIconSize;
+	private final int mAuthorLineHeight;
+	private final int mMessageLineHeight;
+	private final float mAverageCharWidth;
+
+	public static TweetHeightEstimator fromResources(Resources res) {
+		return new TweetHeightEstimator(
+				res.getDimensionPixelSize(R.dimen.tweet_padding),
+				res.getDimensionPixelSize(R.dimen.tweet_profile_image_size),
+				res.getDimensionPixelSize(R.dimen.tweet_content_margin),
+				res.getDimensionPixelSize(R.dimen.tweet_post_image_height),
+				res.getDimensionPixelSize(R.dimen.tweet_icon_image_size),
+				res.getDimensionPixelSize(R.dimen.tweet_author_text_size),
+				res.getDimensionPixelSize(R.dimen.tweet_message_text_size));
+	}
+
+	public TweetHeightEstimator(int padding, int profileImageSize, int contentMargin, int postImageHeight,
+	                            int iconSize, int authorTextSize, int messageTextSize) {
+		mPadding = padding;
+		mProfileImageSize = profileImageSize;
+		mContentMargin = contentMargin;
+		mPostImageHeight = postImageHeight;
+		mIconSize = iconSize;
+		mAuthorLineHeight = Math.round(authorTextSize * LINE_SPACING);
+		mMessageLineHeight = Math.round(messageTextSize * LINE_SPACING);
+		mAverageCharWidth = messageTextSize * AVERAGE_CHAR_WIDTH;
+	}
+
+	@Override
+	public int estimateHeight(Tweet tweet, int width) {
+		if (tweet instanceof Gap) {
+			return 2 * mPadding + mAuthorLineHeight; // <= single line timeline_gap_row
+		}
+
+		int textWidth = Math.max(1, width - 2 * mPadding - mProfileImageSize - mContentMargin);
+		int charsPerLine = Math.max(1, (int) (textWidth / mAverageCharWidth));
+		String message = tweet.getMessage();
+		int length = message == null ? 0 : message.length();
+		int lines = Math.max(1, (length + charsPerLine - 1) / charsPerLine);
+
+		int content = mAuthorLineHeight + lines * mMessageLineHeight;
+		if (!TextUtils.isEmpty(tweet.getPostImageUrl())) {
+			content += mContentMargin + mPostImageHeight;
+		}
+		content += mContentMargin + mIconSize;
+
+		return 2 * mPadding + Math.max(mProfileImageSize, content);
+	}
+}
@@ -30,17 +30,34 @@ import android.widget.TextView;
 
 import com.example.listdeletetest.R;
 import com.example.listdeletetest.model.Tweet;
-import com.squareup.picasso.Picasso;
+import com.example.listdeletetest.utils.ImageLoader;
 
 
 public class TweetItemView extends RelativeLayout implements Checkable {
+
+	public static interface OnRowMeasuredListener {
+		void onRowMeasured(Tweet tweet, int width, int height);
+	}
+
 	private final ImageView mProfileImage;
 	private final TextView mAuthorText;
 	private final TextView mMessageText;
 	private final ImageView mPostImage;
 	private boolean mChecked;
-	private Paint mDividerPaint;
-	private final Paint mSelectionPaint;
+	private Tweet mTweet;
+	private OnRowMeasuredListener mOnRowMeasuredListener;
+
+	// shared by all rows, creating them per row adds up while inflating a screen full
+	private static final Paint sDividerPaint = new Paint();
+	private static final Paint sSelectionPaint = new Paint();
+
+	static {
+		// custom divider, since we disabled list divider
+		sDividerPaint.setColor(0xffb7b7b7);
+
+		// cell selection
+		sSelectionPaint.setColor(Color.argb(55, 255, 0, 0));
+	}
 
 	public TweetItemView(Context context) {
 		super(context);
@@ -51,14 +68,6 @@ public class TweetItemView extends RelativeLayout implements Checkable {
 		mAuthorText = (TextView) findViewById(R.id.author_text);
 		mMessageText = (TextView) findViewById(R.id.message_text);
 		mPostImage = (ImageView) findViewById(R.id.post_image);
-
-		// custom divider, since we disabled list divider
-		mDividerPaint = new Paint();
-		mDividerPaint.setColor(0xffb7b7b7);
-
-		// cell selection
-		mSelectionPaint = new Paint();
-		mSelectionPaint.setColor(Color.argb(55, 255, 0, 0));
 	}
 
 	@Override
@@ -66,12 +75,25 @@ public class TweetItemView extends RelativeLayout implements Checkable {
 		return false;
 	}
 
-	public void update(Tweet tweet) {
-		mAuthorText.setText(String.valueOf(tweet.getTimeStamp()) + " : " + tweet.getAuthorName());
+	public void setOnRowMeasuredListener(OnRowMeasuredListener listener) {
+		mOnRowMeasuredListener = listener;
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+		if (mOnRowMeasuredListener != null && mTweet != null) {
+			mOnRowMeasuredListener.onRowMeasured(mTweet, getMeasuredWidth(), getMeasuredHeight());
+		}
+	}
+
+	public void update(Tweet tweet, CharSequence authorLine) {
+		mTweet = tweet;
+		mAuthorText.setText(authorLine);
 		mMessageText.setText(tweet.getMessage());
 
 		final Context context = getContext();
-		Picasso.with(context)
+		ImageLoader.get(context)
 				.load(tweet.getProfileImageUrl())
 				.placeholder(R.drawable.tweet_placeholder_image)
 				.error(R.drawable.tweet_placeholder_image)
@@ -80,7 +102,7 @@ public class TweetItemView extends RelativeLayout implements Checkable {
 		final boolean hasPostImage = !TextUtils.isEmpty(tweet.getPostImageUrl());
 		mPostImage.setVisibility(hasPostImage ? View.VISIBLE : View.GONE);
 		if (hasPostImage) {
-			Picasso.with(context)
+			ImageLoader.get(context)
 					.load(tweet.getPostImageUrl())
 					.placeholder(R.drawable.tweet_placeholder_image)
 					.error(R.drawable.tweet_placeholder_image)
@@ -96,11 +118,11 @@ public class TweetItemView extends RelativeLayout implements Checkable {
 		int cw = canvas.getWidth();
 		if (mChecked) {
 			// checked state
-			canvas.drawRect(0, 0, cw, ch - 1, mSelectionPaint);
+			canvas.drawRect(0, 0, cw, ch - 1, sSelectionPaint);
 		}
 
 		// divider line
-		canvas.drawRect(0, ch - 1, cw, ch, mDividerPaint);
+		canvas.drawRect(0, ch - 1, cw, ch, sDividerPaint);
 	}
 
 	@Override
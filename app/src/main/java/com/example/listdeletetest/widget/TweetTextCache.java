@@ -0,0 +1,51 @@
+package com.example.listdeletetest.widget;
+
+import com.example.listdeletetest.model.Tweet;
+import com.example.listdeletetest.utils.MemoryBudget;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Row texts keyed by tweet id, computed ahead of binding by the page pipeline.
+ * Safe to use from any thread.
+ */
+public class TweetTextCache implements MemoryBudget.Cache {
+	private static final int ENTRY_BYTES = 128; // <= map node plus a short string, the key is shared with the tweet
+
+	private final ConcurrentHashMap<String, String> mAuthorLines = new ConcurrentHashMap<String, String>();
+
+	public String getAuthorLine(Tweet tweet) {
+		String line = mAuthorLines.get(tweet.getId());
+		if (line == null) {
+			line = String.valueOf(tweet.getTimeStamp()) + " : " + tweet.getAuthorName();
+			mAuthorLines.put(tweet.getId(), line);
+		}
+		return line;
+	}
+
+	public int size() {
+		return mAuthorLines.size();
+	}
+
+	public void clear() {
+		mAuthorLines.clear();
+	}
+
+	@Override
+	public long getSizeBytes() {
+		return (long) mAuthorLines.size() * ENTRY_BYTES;
+	}
+
+	@Override
+	public long trim(long bytes) {
+		long freed = 0;
+		Iterator<String> iterator = mAuthorLines.keySet().iterator();
+		while (freed < bytes && iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+			freed += ENTRY_BYTES;
+		}
+		return freed;
+	}
+}
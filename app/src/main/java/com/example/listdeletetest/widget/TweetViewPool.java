@@ -0,0 +1,108 @@
+package com.example.listdeletetest.widget;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import com.example.listdeletetest.R;
+import com.example.listdeletetest.utils.MemoryBudget;
+import com.example.listdeletetest.utils.Metrics;
+
+import java.util.ArrayDeque;
+
+/**
+ * Warm pool of {@link TweetItemView}s, so the list does not have to inflate rows while the
+ * user flings through it for the first time. The pool is sized to cover one screen of the
+ * smallest possible rows and is filled one view per main thread idle pass.
+ */
+public class TweetViewPool implements MemoryBudget.Cache {
+	public static final String METRIC_INFLATE = "inflate.TweetItemView";
+
+	private static final int VIEW_BYTES = 8 * 1024; // <= a row with its eight child views and their drawables
+
+	private static final int EXTRA_VIEWS = 2; // <= list keeps one partially visible row at each end
+
+	private final Context mContext;
+	private final ArrayDeque<TweetItemView> mViews = new ArrayDeque<TweetItemView>();
+	private final int mTargetSize;
+	private MessageQueue mPrefillQueue;
+	private MessageQueue.IdleHandler mPrefill; // <= while prefilling
+
+	public TweetViewPool(Context context) {
+		mContext = context;
+		Resources res = context.getResources();
+		int minRowHeight = res.getDimensionPixelSize(R.dimen.tweet_profile_image_size)
+				+ 2 * res.getDimensionPixelSize(R.dimen.tweet_padding);
+		mTargetSize = res.getDisplayMetrics().heightPixels / minRowHeight + 1 + EXTRA_VIEWS;
+	}
+
+	/**
+	 * Returns a pooled view, or inflates a new one if the pool ran dry.
+	 */
+	public TweetItemView obtain() {
+		TweetItemView view = mViews.poll();
+		return view != null ? view : inflate();
+	}
+
+	public int size() {
+		return mViews.size();
+	}
+
+	/**
+	 * Fills the pool up to its target size, inflating one view each time the main thread goes idle.
+	 */
+	public void prefill() {
+		if (mPrefill != null || mViews.size() >= mTargetSize) {
+			return;
+		}
+		mPrefill = new MessageQueue.IdleHandler() {
+			@Override
+			public boolean queueIdle() {
+				if (mViews.size() < mTargetSize) {
+					mViews.add(inflate());
+				}
+				if (mViews.size() < mTargetSize) {
+					return true;
+				}
+				mPrefill = null;
+				return false;
+			}
+		};
+		mPrefillQueue = Looper.myQueue();
+		mPrefillQueue.addIdleHandler(mPrefill);
+	}
+
+	/**
+	 * Stops a running {@link #prefill} and drops the pooled views. They were inflated with the
+	 * pool's context, so this has to happen once the list showing them is destroyed.
+	 */
+	public void cancel() {
+		if (mPrefill != null) {
+			mPrefillQueue.removeIdleHandler(mPrefill);
+			mPrefill = null;
+		}
+		mViews.clear();
+	}
+
+	@Override
+	public long getSizeBytes() {
+		return (long) mViews.size() * VIEW_BYTES;
+	}
+
+	@Override
+	public long trim(long bytes) {
+		long freed = 0;
+		while (freed < bytes && mViews.poll() != null) {
+			freed += VIEW_BYTES;
+		}
+		return freed;
+	}
+
+	private TweetItemView inflate() {
+		long start = System.nanoTime();
+		TweetItemView view = new TweetItemView(mContext);
+		Metrics.record(METRIC_INFLATE, System.nanoTime() - start);
+		return view;
+	}
+}